@@ -0,0 +1,157 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parquet.compat.test.ConvertOptions;
+import parquet.compat.test.ConvertUtils;
+import parquet.compat.test.Utils;
+import parquet.hadoop.metadata.CompressionCodecName;
+
+/**
+ * Benchmarks the csv to parquet and parquet to csv conversions used by
+ * TestPerfRegression.
+ *
+ * Run from a parquet-compat-$version directory with
+ * mvn -Pbench test-compile exec:exec -Dbench.args="ConvertBenchmark"
+ * The defaults are one file size and codec, widen them with
+ * -p fileSizeMegs=10,100,1000 -p codec=UNCOMPRESSED,SNAPPY,GZIP
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 2, jvmArgsAppend = "-Xmx1024m")
+public class ConvertBenchmark {
+
+  @Param({"false", "true"})
+  public boolean dictionary;
+
+  @Param({"UNCOMPRESSED"})
+  public CompressionCodecName codec;
+
+  @Param({"100"})
+  public int fileSizeMegs;
+
+  @Param({"128"})
+  public int blockMegs;
+
+  @Param({"1024"})
+  public int pageKB;
+
+  private ConvertOptions options;
+  private File csvFile;
+  private long rows;
+  private File parquetFile;
+  private File parquetOutputFile;
+  private File csvOutputFile;
+
+  /**
+   * Rows and bytes processed, reported by jmh as rates next to the time per op.
+   */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Counters {
+    public long rows;
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      rows = 0;
+      bytes = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void createFiles() throws IOException {
+    String module = fileSizeMegs + "." + (dictionary ? "dict" : "plain") + "." + codec.name().toLowerCase()
+        + ".b" + blockMegs + "m.p" + pageKB + "k";
+    options = new ConvertOptions().setCodec(codec).setEnableDictionary(dictionary)
+        .setBlockSize(blockMegs * 1024 * 1024).setPageSize(pageKB * 1024);
+    csvFile = Utils.createTestFile("perftest." + fileSizeMegs, fileSizeMegs);
+    rows = countLines(csvFile);
+    parquetFile = ConvertUtils.convertCsvToParquetCached(csvFile, options);
+    parquetOutputFile = Utils.getParquetOutputFile("bench.out", module, true);
+    csvOutputFile = Utils.getCsvTestFile("bench", module, true);
+  }
+
+  @Setup(Level.Invocation)
+  public void deleteOutput() {
+    parquetOutputFile.delete();
+    csvOutputFile.delete();
+  }
+
+  @Benchmark
+  public void csvToParquet(Counters counters) throws IOException {
+    ConvertUtils.convertCsvToParquet(csvFile, parquetOutputFile, options);
+    counters.rows += rows;
+    counters.bytes += csvFile.length();
+  }
+
+  @Benchmark
+  public void parquetToCsv(Counters counters) throws IOException {
+    ConvertUtils.convertParquetToCSV(parquetFile, csvOutputFile);
+    counters.rows += rows;
+    counters.bytes += parquetFile.length();
+  }
+
+  @Benchmark
+  public void parquetToCsvLowLevel(Counters counters) throws IOException {
+    ConvertUtils.convertParquetToCSVEx(parquetFile, csvOutputFile);
+    counters.rows += rows;
+    counters.bytes += parquetFile.length();
+  }
+
+  @Benchmark
+  public void parquetToCsvColumnar(Counters counters) throws IOException {
+    ConvertUtils.convertParquetToCSVColumnar(parquetFile, csvOutputFile);
+    counters.rows += rows;
+    counters.bytes += parquetFile.length();
+  }
+
+  private static long countLines(File file) throws IOException {
+    BufferedReader reader = new BufferedReader(new FileReader(file));
+    try {
+      long lines = 0;
+      while (reader.readLine() != null) {
+        ++lines;
+      }
+      return lines;
+    } finally {
+      Utils.closeQuietly(reader);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parquet.compat.test.ColumnPredicate;
+import parquet.compat.test.ConvertOptions;
+import parquet.compat.test.ConvertUtils;
+import parquet.compat.test.TpchGenerator;
+import parquet.compat.test.Utils;
+
+/**
+ * Benchmarks exports of the customer table reading all its columns, a projection,
+ * and a projection of the rows of a key range, reporting the bytes of
+ * column chunks read.
+ *
+ * Run from a parquet-compat-$version directory with
+ * mvn -Pbench test-compile exec:exec -Dbench.args="ScanBenchmark -p scaleFactor=1"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 2, jvmArgsAppend = "-Xmx1024m")
+public class ScanBenchmark {
+
+  @Param({"1"})
+  public double scaleFactor;
+
+  @Param({"8"})
+  public int blockMegs;
+
+  @Param({"all", "projected", "filtered"})
+  public String scan;
+
+  private File parquetFile;
+  private File csvOutputFile;
+  private List<String> columns;
+  private List<ColumnPredicate> predicates;
+
+  /**
+   * Bytes of column chunks read, reported by jmh as a rate next to the time per op.
+   */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class Counters {
+    public long bytesRead;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytesRead = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void createFiles() throws IOException {
+    File csvFile = Utils.createTpchFile(TpchGenerator.Table.CUSTOMER, scaleFactor);
+    parquetFile = ConvertUtils.convertCsvToParquetCached(
+        csvFile, new ConvertOptions().setBlockSize(blockMegs * 1024 * 1024));
+    csvOutputFile = Utils.getCsvTestFile("bench.scan", scan + "." + scaleFactor, true);
+    columns = scan.equals("all") ? null : Arrays.asList("cust_key", "name", "acctbal");
+    predicates = scan.equals("filtered")
+        ? Collections.singletonList(ColumnPredicate.le("cust_key", (long) (15000 * scaleFactor)))
+        : Collections.<ColumnPredicate>emptyList();
+  }
+
+  @Setup(Level.Invocation)
+  public void deleteOutput() {
+    csvOutputFile.delete();
+  }
+
+  @Benchmark
+  public void parquetToCsv(Counters counters) throws IOException {
+    counters.bytesRead += ConvertUtils.convertParquetToCSV(parquetFile, csvOutputFile, columns, predicates);
+  }
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+
+import parquet.Log;
+
+/**
+ * A cache of generated files, or directories, keyed by a hash of everything
+ * they are generated from, so that identical artifacts are only generated once.
+ * Input files are part of the key by the SHA-1 of their content, which is
+ * itself remembered by path, length and modification time.
+ * Artifacts are generated under a temporary name and renamed once complete.
+ * The least recently used artifacts are evicted when the cache grows over
+ * its size bound, set in MB by the cache.maxMegs system property.
+ */
+public class ArtifactCache {
+
+  private static final Log LOG = Log.getLog(ArtifactCache.class);
+
+  private static final String DIGESTS = "digests.properties";
+  private static final String TEMP_PREFIX = "tmp-";
+
+  private static ArtifactCache defaultCache;
+
+  public interface Producer {
+    /**
+     * Generates the artifact, output doesn't exist yet.
+     */
+    void produce(File output) throws IOException;
+  }
+
+  private final File dir;
+  private final long maxBytes;
+  private final Properties digests = new Properties();
+
+  public ArtifactCache(File dir, long maxBytes) throws IOException {
+    this.dir = dir;
+    this.maxBytes = maxBytes;
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Could not create " + dir.getAbsolutePath());
+    }
+    File digestsFile = new File(dir, DIGESTS);
+    if (digestsFile.exists()) {
+      InputStream in = new FileInputStream(digestsFile);
+      try {
+        digests.load(in);
+      } finally {
+        Utils.closeQuietly(in);
+      }
+    }
+  }
+
+  /**
+   * @return the cache under target/cache
+   */
+  public static synchronized ArtifactCache getDefault() throws IOException {
+    if (defaultCache == null) {
+      defaultCache = new ArtifactCache(new File("target/cache"), Long.getLong("cache.maxMegs", 8192) * 1024 * 1024);
+    }
+    return defaultCache;
+  }
+
+  /**
+   * @param parts files, keyed by their content, or values, keyed by their toString()
+   */
+  public String key(Object... parts) throws IOException {
+    MessageDigest digest = newDigest();
+    for (Object part : parts) {
+      String value = part instanceof File ? getDigest((File) part) : String.valueOf(part);
+      digest.update(value.getBytes(CsvRecord.UTF8));
+      digest.update((byte) 0);
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * @return the cached artifact, generated by producer if it is not cached yet
+   */
+  public File get(String key, String extension, Producer producer) throws IOException {
+    File artifact = new File(dir, key + extension);
+    synchronized (this) {
+      if (artifact.exists()) {
+        LOG.info("Reusing " + artifact.getName());
+        artifact.setLastModified(System.currentTimeMillis());
+        return artifact;
+      }
+    }
+    File temp = new File(dir, TEMP_PREFIX + UUID.randomUUID() + extension);
+    try {
+      producer.produce(temp);
+      synchronized (this) {
+        // produced concurrently by someone else
+        if (!artifact.exists() && !temp.renameTo(artifact)) {
+          throw new IOException("Could not rename " + temp + " to " + artifact);
+        }
+        artifact.setLastModified(System.currentTimeMillis());
+        evict(artifact);
+      }
+    } finally {
+      FileUtils.deleteQuietly(temp);
+    }
+    return artifact;
+  }
+
+  // least recently used first until the cache fits, keeping the one just used
+  private void evict(File keep) {
+    File[] artifacts = dir.listFiles();
+    if (artifacts == null) {
+      return;
+    }
+    Arrays.sort(artifacts, new Comparator<File>() {
+      @Override
+      public int compare(File a, File b) {
+        return Long.valueOf(a.lastModified()).compareTo(b.lastModified());
+      }
+    });
+    long size = 0;
+    for (File artifact : artifacts) {
+      size += FileUtils.sizeOf(artifact);
+    }
+    for (File artifact : artifacts) {
+      if (size <= maxBytes) {
+        break;
+      }
+      String name = artifact.getName();
+      if (artifact.equals(keep) || name.equals(DIGESTS) || name.startsWith(TEMP_PREFIX)) {
+        continue;
+      }
+      LOG.info("Evicting " + name);
+      size -= FileUtils.sizeOf(artifact);
+      FileUtils.deleteQuietly(artifact);
+    }
+  }
+
+  private synchronized String getDigest(File file) throws IOException {
+    String id = file.getCanonicalPath();
+    String stamp = file.length() + ":" + file.lastModified() + ":";
+    String known = digests.getProperty(id);
+    if (known != null && known.startsWith(stamp)) {
+      return known.substring(stamp.length());
+    }
+    MessageDigest digest = newDigest();
+    InputStream in = MappedFile.open(file);
+    try {
+      byte[] buffer = new byte[64 * 1024];
+      int read;
+      while ((read = in.read(buffer)) >= 0) {
+        digest.update(buffer, 0, read);
+      }
+    } finally {
+      Utils.closeQuietly(in);
+    }
+    String value = toHex(digest.digest());
+    digests.setProperty(id, stamp + value);
+    OutputStream out = new FileOutputStream(new File(dir, DIGESTS));
+    try {
+      digests.store(out, "content digests of cache inputs");
+    } finally {
+      Utils.closeQuietly(out);
+    }
+    return value;
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+/**
+ * Parses csv field slices straight from their utf-8 bytes, with the same
+ * results as the java.lang parse methods applied to the decoded String.
+ */
+public class ByteUtils {
+
+  private static final double[] DOUBLE_POWERS_OF_TEN = new double[23];
+  private static final float[] FLOAT_POWERS_OF_TEN = new float[11];
+  static {
+    DOUBLE_POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < DOUBLE_POWERS_OF_TEN.length; i++) {
+      DOUBLE_POWERS_OF_TEN[i] = DOUBLE_POWERS_OF_TEN[i - 1] * 10;
+    }
+    FLOAT_POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < FLOAT_POWERS_OF_TEN.length; i++) {
+      FLOAT_POWERS_OF_TEN[i] = FLOAT_POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  // largest mantissas that are exact as a double or a float
+  private static final long MAX_EXACT_DOUBLE = 1L << 53;
+  private static final long MAX_EXACT_FLOAT = 1L << 24;
+
+  private ByteUtils() {
+  }
+
+  public static int parseInt(byte[] bytes, int offset, int length) {
+    long value = parseLong(bytes, offset, length);
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw numberFormatException(bytes, offset, length);
+    }
+    return (int) value;
+  }
+
+  public static long parseLong(byte[] bytes, int offset, int length) {
+    int i = offset;
+    int end = offset + length;
+    boolean negative = false;
+    if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+      negative = bytes[i] == '-';
+      ++i;
+    }
+    if (i == end) {
+      throw numberFormatException(bytes, offset, length);
+    }
+    // accumulate negatively so that Long.MIN_VALUE doesn't overflow
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long multiplyLimit = limit / 10;
+    long value = 0;
+    for (; i < end; i++) {
+      int digit = bytes[i] - '0';
+      if (digit < 0 || digit > 9 || value < multiplyLimit) {
+        throw numberFormatException(bytes, offset, length);
+      }
+      value *= 10;
+      if (value < limit + digit) {
+        throw numberFormatException(bytes, offset, length);
+      }
+      value -= digit;
+    }
+    return negative ? value : -value;
+  }
+
+  public static double parseDouble(byte[] bytes, int offset, int length) {
+    // fast path: mantissa and power of ten are both exact doubles,
+    // so a single division gives the correctly rounded result
+    int i = offset;
+    int end = offset + length;
+    boolean negative = false;
+    if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+      negative = bytes[i] == '-';
+      ++i;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int scale = -1;
+    for (; i < end; i++) {
+      byte b = bytes[i];
+      if (b >= '0' && b <= '9') {
+        if (++digits > 18) {
+          break;
+        }
+        mantissa = mantissa * 10 + (b - '0');
+        if (scale >= 0) {
+          ++scale;
+        }
+      } else if (b == '.' && scale < 0) {
+        scale = 0;
+      } else {
+        break;
+      }
+    }
+    if (i == end && digits > 0 && mantissa <= MAX_EXACT_DOUBLE && scale < DOUBLE_POWERS_OF_TEN.length) {
+      double value = scale > 0 ? mantissa / DOUBLE_POWERS_OF_TEN[scale] : mantissa;
+      return negative ? -value : value;
+    }
+    return Double.parseDouble(toString(bytes, offset, length));
+  }
+
+  public static float parseFloat(byte[] bytes, int offset, int length) {
+    int i = offset;
+    int end = offset + length;
+    boolean negative = false;
+    if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+      negative = bytes[i] == '-';
+      ++i;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int scale = -1;
+    for (; i < end; i++) {
+      byte b = bytes[i];
+      if (b >= '0' && b <= '9') {
+        if (++digits > 18) {
+          break;
+        }
+        mantissa = mantissa * 10 + (b - '0');
+        if (scale >= 0) {
+          ++scale;
+        }
+      } else if (b == '.' && scale < 0) {
+        scale = 0;
+      } else {
+        break;
+      }
+    }
+    if (i == end && digits > 0 && mantissa <= MAX_EXACT_FLOAT && scale < FLOAT_POWERS_OF_TEN.length) {
+      float value = scale > 0 ? (float) mantissa / FLOAT_POWERS_OF_TEN[scale] : (float) mantissa;
+      return negative ? -value : value;
+    }
+    return Float.parseFloat(toString(bytes, offset, length));
+  }
+
+  /**
+   * @return true for "true" in any case, false otherwise, like Boolean.parseBoolean
+   */
+  public static boolean parseBoolean(byte[] bytes, int offset, int length) {
+    return length == 4
+        && (bytes[offset] | 0x20) == 't'
+        && (bytes[offset + 1] | 0x20) == 'r'
+        && (bytes[offset + 2] | 0x20) == 'u'
+        && (bytes[offset + 3] | 0x20) == 'e';
+  }
+
+  public static String toString(byte[] bytes, int offset, int length) {
+    return new String(bytes, offset, length, CsvRecord.UTF8);
+  }
+
+  private static NumberFormatException numberFormatException(byte[] bytes, int offset, int length) {
+    return new NumberFormatException("For input string: \"" + toString(bytes, offset, length) + "\"");
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.util.List;
+
+import parquet.Preconditions;
+import parquet.column.ColumnDescriptor;
+import parquet.schema.MessageType;
+
+/**
+ * Rows of a flat schema stored column by column in {@link ColumnVector}s.
+ * Batches are reused: {@link #reset()} drops the rows but keeps the arrays.
+ */
+public class ColumnBatch {
+
+  private final MessageType schema;
+  private final ColumnVector[] vectors;
+  private int capacity;
+  private int size;
+  private int currentRow;
+
+  public ColumnBatch(MessageType schema, int capacity) {
+    this.schema = schema;
+    List<ColumnDescriptor> columns = schema.getColumns();
+    this.vectors = new ColumnVector[columns.size()];
+    for (int i = 0; i < vectors.length; i++) {
+      ColumnDescriptor column = columns.get(i);
+      Preconditions.checkArgument(column.getPath().length == 1 && column.getMaxRepetitionLevel() == 0,
+          "Only flat schemas are supported: " + schema);
+      vectors[i] = new ColumnVector(column, capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  public MessageType getSchema() {
+    return schema;
+  }
+
+  public int getColumnCount() {
+    return vectors.length;
+  }
+
+  public ColumnVector getVector(int column) {
+    return vectors[column];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the index of the new row, growing the vectors if needed
+   */
+  public int addRow() {
+    if (size == capacity) {
+      capacity = Math.max(1, capacity * 2);
+      for (ColumnVector vector : vectors) {
+        vector.ensureCapacity(capacity);
+      }
+    }
+    return size++;
+  }
+
+  /**
+   * @return the row written by {@link ColumnBatchWriteSupport}
+   */
+  public int getCurrentRow() {
+    return currentRow;
+  }
+
+  public void setCurrentRow(int row) {
+    this.currentRow = row;
+  }
+
+  public void reset() {
+    size = 0;
+    currentRow = 0;
+    for (ColumnVector vector : vectors) {
+      vector.reset();
+    }
+  }
+}
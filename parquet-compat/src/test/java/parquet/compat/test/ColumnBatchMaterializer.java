@@ -0,0 +1,119 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.IOException;
+import java.util.List;
+
+import parquet.column.ColumnDescriptor;
+import parquet.io.ParquetDecodingException;
+import parquet.io.api.Binary;
+import parquet.io.api.Converter;
+import parquet.io.api.GroupConverter;
+import parquet.io.api.PrimitiveConverter;
+import parquet.io.api.RecordMaterializer;
+import parquet.schema.MessageType;
+
+/**
+ * Materializes the records of a flat schema as rows appended to one
+ * {@link ColumnBatch}, reused by every record instead of allocating
+ * a record per row. The caller empties the batch when it's full.
+ */
+public class ColumnBatchMaterializer extends RecordMaterializer<ColumnBatch> {
+
+  private final ColumnBatch batch;
+  private final GroupConverter root;
+  private int row;
+
+  public ColumnBatchMaterializer(MessageType schema, int capacity) {
+    this.batch = new ColumnBatch(schema, capacity);
+    List<ColumnDescriptor> columns = schema.getColumns();
+    final Converter[] converters = new Converter[columns.size()];
+    for (int i = 0; i < converters.length; i++) {
+      converters[i] = new ValueConverter(i);
+    }
+    this.root = new GroupConverter() {
+      @Override
+      public Converter getConverter(int fieldIndex) {
+        return converters[fieldIndex];
+      }
+
+      @Override
+      public void start() {
+        row = batch.addRow();
+        for (int i = 0; i < converters.length; i++) {
+          batch.getVector(i).setNull(row);
+        }
+      }
+
+      @Override
+      public void end() {
+      }
+    };
+  }
+
+  @Override
+  public ColumnBatch getCurrentRecord() {
+    return batch;
+  }
+
+  @Override
+  public GroupConverter getRootConverter() {
+    return root;
+  }
+
+  private class ValueConverter extends PrimitiveConverter {
+    private final int column;
+
+    ValueConverter(int column) {
+      this.column = column;
+    }
+
+    @Override
+    public void addBoolean(boolean value) {
+      batch.getVector(column).setBoolean(row, value);
+    }
+
+    @Override
+    public void addInt(int value) {
+      batch.getVector(column).setInt(row, value);
+    }
+
+    @Override
+    public void addLong(long value) {
+      batch.getVector(column).setLong(row, value);
+    }
+
+    @Override
+    public void addFloat(float value) {
+      batch.getVector(column).setFloat(row, value);
+    }
+
+    @Override
+    public void addDouble(double value) {
+      batch.getVector(column).setDouble(row, value);
+    }
+
+    @Override
+    public void addBinary(Binary value) {
+      try {
+        batch.getVector(column).setBinary(row, value);
+      } catch (IOException e) {
+        throw new ParquetDecodingException("Could not copy value of column " + column, e);
+      }
+    }
+  }
+}
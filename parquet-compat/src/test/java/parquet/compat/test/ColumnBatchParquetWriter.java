@@ -0,0 +1,58 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.Path;
+
+import parquet.hadoop.metadata.CompressionCodecName;
+import parquet.schema.MessageType;
+
+public class ColumnBatchParquetWriter extends ManagedParquetWriter<ColumnBatch> {
+
+  public ColumnBatchParquetWriter(Path file, MessageType schema, CompressionCodecName codecName, boolean enableDictionary) throws IOException {
+    super(file, new ColumnBatchWriteSupport(schema, enableDictionary), codecName, enableDictionary);
+  }
+
+  private ColumnBatchParquetWriter(Path file, MessageType schema, ConvertOptions options,
+      WriterMemoryManager.Allocation allocation) throws IOException {
+    super(file, new ColumnBatchWriteSupport(schema, options.isEnableDictionary()), options, allocation);
+  }
+
+  /**
+   * @return a writer whose row group size is allocated by the {@link WriterMemoryManager}
+   */
+  public static ColumnBatchParquetWriter open(final Path file, final MessageType schema, final ConvertOptions options)
+      throws IOException {
+    return WriterMemoryManager.open(file, options, new WriterMemoryManager.WriterFactory<ColumnBatchParquetWriter>() {
+      @Override
+      public ColumnBatchParquetWriter create(WriterMemoryManager.Allocation allocation) throws IOException {
+        return new ColumnBatchParquetWriter(file, schema, options, allocation);
+      }
+    });
+  }
+
+  /**
+   * Writes all the rows of the batch.
+   */
+  public void writeBatch(ColumnBatch batch) throws IOException {
+    for (int row = 0; row < batch.size(); row++) {
+      batch.setCurrentRow(row);
+      write(batch);
+    }
+  }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+import parquet.column.ColumnDescriptor;
+import parquet.column.ColumnReader;
+import parquet.column.impl.ColumnReadStoreImpl;
+import parquet.column.page.PageReadStore;
+import parquet.example.data.simple.convert.GroupRecordConverter;
+import parquet.hadoop.ParquetFileReader;
+import parquet.hadoop.metadata.BlockMetaData;
+import parquet.io.ParquetDecodingException;
+import parquet.io.api.GroupConverter;
+import parquet.schema.MessageType;
+
+/**
+ * Reads a parquet file with a flat schema into {@link ColumnBatch}es,
+ * decoding each column chunk straight into the vectors instead of
+ * assembling a record per row.
+ */
+public class ColumnBatchReader implements Closeable {
+
+  private final ParquetFileReader fileReader;
+  private final MessageType schema;
+  private final List<ColumnDescriptor> columns;
+  // only used by the column readers to look up converters, values are read directly
+  private final GroupConverter converter;
+  private final ColumnReader[] readers;
+  private long rowsLeftInRowGroup;
+  // rows of the blocks before the current position
+  private int rowNumber;
+  private BitSet selection;
+
+  /**
+   * @param schema the columns to read, the file schema or a projection of it
+   */
+  public ColumnBatchReader(Configuration configuration, Path file, List<BlockMetaData> blocks, MessageType schema)
+      throws IOException {
+    this.schema = schema;
+    this.columns = schema.getColumns();
+    this.fileReader = new ParquetFileReader(configuration, file, blocks, columns);
+    this.converter = new GroupRecordConverter(schema).getRootConverter();
+    this.readers = new ColumnReader[columns.size()];
+  }
+
+  public MessageType getSchema() {
+    return schema;
+  }
+
+  /**
+   * Only the rows set in selection, numbered from the first row of the blocks
+   * read, are added to the batches. The values of the other rows are skipped
+   * without being materialized.
+   */
+  public void setSelection(BitSet selection) {
+    this.selection = selection;
+  }
+
+  /**
+   * Replaces the content of batch with up to maxRows rows.
+   * @return false when there are no rows left
+   */
+  public boolean next(ColumnBatch batch, int maxRows) throws IOException {
+    batch.reset();
+    do {
+      while (rowsLeftInRowGroup == 0) {
+        PageReadStore pages = fileReader.readNextRowGroup();
+        if (pages == null) {
+          return false;
+        }
+        rowsLeftInRowGroup = pages.getRowCount();
+        ColumnReadStoreImpl store = new ColumnReadStoreImpl(pages, converter, schema);
+        for (int i = 0; i < readers.length; i++) {
+          readers[i] = store.getColumnReader(columns.get(i));
+        }
+      }
+      int rows = (int) Math.min(maxRows, rowsLeftInRowGroup);
+      if (selection == null) {
+        for (int row = 0; row < rows; row++) {
+          batch.addRow();
+        }
+        for (int i = 0; i < readers.length; i++) {
+          read(readers[i], batch.getVector(i), 0, rows);
+        }
+      } else {
+        rows = readSelected(batch, maxRows);
+      }
+      rowsLeftInRowGroup -= rows;
+      rowNumber += rows;
+    } while (batch.size() == 0);
+    return true;
+  }
+
+  // reads the rows of the row group up to its end or its maxRows-th selected row
+  private int readSelected(ColumnBatch batch, int maxRows) throws IOException {
+    int end = (int) (rowNumber + rowsLeftInRowGroup);
+    int last = end;
+    int selected = 0;
+    for (int row = selection.nextSetBit(rowNumber); row >= 0 && row < end; row = selection.nextSetBit(row + 1)) {
+      if (selected == maxRows) {
+        last = row;
+        break;
+      }
+      ++selected;
+    }
+    for (int row = 0; row < selected; row++) {
+      batch.addRow();
+    }
+    for (int i = 0; i < readers.length; i++) {
+      ColumnVector vector = batch.getVector(i);
+      int position = rowNumber;
+      int offset = 0;
+      while (position < last) {
+        int start = selection.nextSetBit(position);
+        if (start < 0 || start > last) {
+          start = last;
+        }
+        skip(readers[i], vector, start - position);
+        if (start == last) {
+          break;
+        }
+        int count = Math.min(selection.nextClearBit(start), last) - start;
+        read(readers[i], vector, offset, count);
+        offset += count;
+        position = start + count;
+      }
+    }
+    return last - rowNumber;
+  }
+
+  private static void skip(ColumnReader reader, ColumnVector vector, int rows) {
+    int maxDefinitionLevel = vector.getDescriptor().getMaxDefinitionLevel();
+    for (int row = 0; row < rows; row++, reader.consume()) {
+      if (reader.getCurrentDefinitionLevel() == maxDefinitionLevel) {
+        reader.skip();
+      }
+    }
+  }
+
+  // one loop per type so that the type is checked once per column and batch
+  private static void read(ColumnReader reader, ColumnVector vector, int offset, int rows) throws IOException {
+    int maxDefinitionLevel = vector.getDescriptor().getMaxDefinitionLevel();
+    switch (vector.getType()) {
+    case BOOLEAN:
+      for (int row = offset, end = offset + rows; row < end; row++, reader.consume()) {
+        if (reader.getCurrentDefinitionLevel() < maxDefinitionLevel) {
+          vector.setNull(row);
+        } else {
+          vector.setBoolean(row, reader.getBoolean());
+        }
+      }
+      break;
+    case INT32:
+      for (int row = offset, end = offset + rows; row < end; row++, reader.consume()) {
+        if (reader.getCurrentDefinitionLevel() < maxDefinitionLevel) {
+          vector.setNull(row);
+        } else {
+          vector.setInt(row, reader.getInteger());
+        }
+      }
+      break;
+    case INT64:
+      for (int row = offset, end = offset + rows; row < end; row++, reader.consume()) {
+        if (reader.getCurrentDefinitionLevel() < maxDefinitionLevel) {
+          vector.setNull(row);
+        } else {
+          vector.setLong(row, reader.getLong());
+        }
+      }
+      break;
+    case FLOAT:
+      for (int row = offset, end = offset + rows; row < end; row++, reader.consume()) {
+        if (reader.getCurrentDefinitionLevel() < maxDefinitionLevel) {
+          vector.setNull(row);
+        } else {
+          vector.setFloat(row, reader.getFloat());
+        }
+      }
+      break;
+    case DOUBLE:
+      for (int row = offset, end = offset + rows; row < end; row++, reader.consume()) {
+        if (reader.getCurrentDefinitionLevel() < maxDefinitionLevel) {
+          vector.setNull(row);
+        } else {
+          vector.setDouble(row, reader.getDouble());
+        }
+      }
+      break;
+    case BINARY:
+      for (int row = offset, end = offset + rows; row < end; row++, reader.consume()) {
+        if (reader.getCurrentDefinitionLevel() < maxDefinitionLevel) {
+          vector.setNull(row);
+        } else {
+          vector.setBinary(row, reader.getBinary());
+        }
+      }
+      break;
+    default:
+      throw new ParquetDecodingException("Unsupported column type: " + vector.getType());
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    fileReader.close();
+  }
+}
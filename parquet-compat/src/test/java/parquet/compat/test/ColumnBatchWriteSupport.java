@@ -0,0 +1,138 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+
+import parquet.column.ColumnDescriptor;
+import parquet.hadoop.api.WriteSupport;
+import parquet.io.ParquetEncodingException;
+import parquet.io.api.Binary;
+import parquet.io.api.RecordConsumer;
+import parquet.schema.MessageType;
+
+/**
+ * Writes the current row of a {@link ColumnBatch}, see {@link ColumnBatch#setCurrentRow(int)}.
+ */
+public class ColumnBatchWriteSupport extends WriteSupport<ColumnBatch> {
+  MessageType schema;
+  RecordConsumer recordConsumer;
+  String[] fieldNames;
+  ValueWriter[] valueWriters;
+
+  /**
+   * @param schema the schema of the batches
+   * @param copyBinary whether binary values must be copied out of the batch,
+   * see {@link CsvRecordWriteSupport#CsvRecordWriteSupport(MessageType, boolean)}
+   */
+  public ColumnBatchWriteSupport(MessageType schema, boolean copyBinary) {
+    this.schema = schema;
+    List<ColumnDescriptor> cols = schema.getColumns();
+    this.fieldNames = new String[cols.size()];
+    this.valueWriters = new ValueWriter[cols.size()];
+    for (int i = 0; i < cols.size(); ++i) {
+      fieldNames[i] = cols.get(i).getPath()[0];
+      valueWriters[i] = valueWriter(cols.get(i), copyBinary);
+    }
+  }
+
+  @Override
+  public WriteContext init(Configuration config) {
+    return new WriteContext(schema, new HashMap<String, String>());
+  }
+
+  @Override
+  public void prepareForWrite(RecordConsumer r) {
+    recordConsumer = r;
+  }
+
+  @Override
+  public void write(ColumnBatch batch) {
+    int row = batch.getCurrentRow();
+    recordConsumer.startMessage();
+    for (int i = 0; i < valueWriters.length; ++i) {
+      ColumnVector vector = batch.getVector(i);
+      if (!vector.isNull(row)) {
+        recordConsumer.startField(fieldNames[i], i);
+        valueWriters[i].write(recordConsumer, vector, row);
+        recordConsumer.endField(fieldNames[i], i);
+      }
+    }
+    recordConsumer.endMessage();
+  }
+
+  static abstract class ValueWriter {
+    abstract void write(RecordConsumer recordConsumer, ColumnVector vector, int row);
+  }
+
+  private static ValueWriter valueWriter(ColumnDescriptor column, boolean copyBinary) {
+    switch (column.getType()) {
+    case BOOLEAN:
+      return new ValueWriter() {
+        void write(RecordConsumer recordConsumer, ColumnVector vector, int row) {
+          recordConsumer.addBoolean(vector.getBoolean(row));
+        }
+      };
+    case FLOAT:
+      return new ValueWriter() {
+        void write(RecordConsumer recordConsumer, ColumnVector vector, int row) {
+          recordConsumer.addFloat(vector.getFloat(row));
+        }
+      };
+    case DOUBLE:
+      return new ValueWriter() {
+        void write(RecordConsumer recordConsumer, ColumnVector vector, int row) {
+          recordConsumer.addDouble(vector.getDouble(row));
+        }
+      };
+    case INT32:
+      return new ValueWriter() {
+        void write(RecordConsumer recordConsumer, ColumnVector vector, int row) {
+          recordConsumer.addInteger(vector.getInt(row));
+        }
+      };
+    case INT64:
+      return new ValueWriter() {
+        void write(RecordConsumer recordConsumer, ColumnVector vector, int row) {
+          recordConsumer.addLong(vector.getLong(row));
+        }
+      };
+    case BINARY:
+      if (copyBinary) {
+        return new ValueWriter() {
+          void write(RecordConsumer recordConsumer, ColumnVector vector, int row) {
+            int offset = vector.getBinaryOffset(row);
+            recordConsumer.addBinary(Binary.fromByteArray(
+                Arrays.copyOfRange(vector.getBinaryBytes(), offset, offset + vector.getBinaryLength(row))));
+          }
+        };
+      }
+      return new ValueWriter() {
+        void write(RecordConsumer recordConsumer, ColumnVector vector, int row) {
+          recordConsumer.addBinary(Binary.fromByteArray(
+              vector.getBinaryBytes(), vector.getBinaryOffset(row), vector.getBinaryLength(row)));
+        }
+      };
+    default:
+      throw new ParquetEncodingException(
+          "Unsupported column type: " + column.getType());
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import parquet.Preconditions;
+import parquet.column.ColumnDescriptor;
+import parquet.column.ColumnReader;
+import parquet.io.api.Binary;
+
+/**
+ * A comparison of a top level column with a constant, evaluated on the
+ * current value of a {@link ColumnReader}. Binary columns compare as
+ * unsigned bytes with the UTF-8 encoding of the constant.
+ * Null never matches, except for {@link #isNull(String)}.
+ */
+public class ColumnPredicate {
+
+  public enum Operator {
+    EQ, NE, LT, LE, GT, GE, IS_NULL, NOT_NULL
+  }
+
+  private final String column;
+  private final Operator operator;
+  private final Comparable<?> value;
+  private final byte[] binaryValue;
+
+  private ColumnPredicate(String column, Operator operator, Comparable<?> value) {
+    Preconditions.checkArgument(value != null || operator == Operator.IS_NULL || operator == Operator.NOT_NULL,
+        "A value is required by " + operator);
+    this.column = column;
+    this.operator = operator;
+    this.value = value;
+    this.binaryValue = value instanceof String ? ((String) value).getBytes(CsvRecord.UTF8) : null;
+  }
+
+  public static ColumnPredicate eq(String column, Comparable<?> value) {
+    return new ColumnPredicate(column, Operator.EQ, value);
+  }
+
+  public static ColumnPredicate ne(String column, Comparable<?> value) {
+    return new ColumnPredicate(column, Operator.NE, value);
+  }
+
+  public static ColumnPredicate lt(String column, Comparable<?> value) {
+    return new ColumnPredicate(column, Operator.LT, value);
+  }
+
+  public static ColumnPredicate le(String column, Comparable<?> value) {
+    return new ColumnPredicate(column, Operator.LE, value);
+  }
+
+  public static ColumnPredicate gt(String column, Comparable<?> value) {
+    return new ColumnPredicate(column, Operator.GT, value);
+  }
+
+  public static ColumnPredicate ge(String column, Comparable<?> value) {
+    return new ColumnPredicate(column, Operator.GE, value);
+  }
+
+  public static ColumnPredicate isNull(String column) {
+    return new ColumnPredicate(column, Operator.IS_NULL, null);
+  }
+
+  public static ColumnPredicate notNull(String column) {
+    return new ColumnPredicate(column, Operator.NOT_NULL, null);
+  }
+
+  public String getColumn() {
+    return column;
+  }
+
+  public Operator getOperator() {
+    return operator;
+  }
+
+  /**
+   * Evaluates the current value of reader, which reads the column of this predicate.
+   */
+  public boolean matches(ColumnReader reader, ColumnDescriptor descriptor) {
+    boolean isNull = reader.getCurrentDefinitionLevel() < descriptor.getMaxDefinitionLevel();
+    switch (operator) {
+    case IS_NULL:
+      return isNull;
+    case NOT_NULL:
+      return !isNull;
+    default:
+      return !isNull && matches(compare(reader, descriptor));
+    }
+  }
+
+  /**
+   * @return whether {@link #matches(ColumnReader, ColumnDescriptor)} reads the value when it isn't null
+   */
+  boolean readsValue() {
+    return operator != Operator.IS_NULL && operator != Operator.NOT_NULL;
+  }
+
+  boolean matches(int comparison) {
+    switch (operator) {
+    case EQ:
+      return comparison == 0;
+    case NE:
+      return comparison != 0;
+    case LT:
+      return comparison < 0;
+    case LE:
+      return comparison <= 0;
+    case GT:
+      return comparison > 0;
+    case GE:
+      return comparison >= 0;
+    default:
+      throw new IllegalStateException("Not a comparison: " + operator);
+    }
+  }
+
+  // the current value compared with the constant
+  private int compare(ColumnReader reader, ColumnDescriptor descriptor) {
+    switch (descriptor.getType()) {
+    case BOOLEAN:
+      return compare(reader.getBoolean() ? 1 : 0, ((Boolean) value) ? 1 : 0);
+    case INT32:
+      return compare(reader.getInteger(), ((Number) value).longValue());
+    case INT64:
+      return compare(reader.getLong(), ((Number) value).longValue());
+    case FLOAT:
+      return Double.compare(reader.getFloat(), ((Number) value).doubleValue());
+    case DOUBLE:
+      return Double.compare(reader.getDouble(), ((Number) value).doubleValue());
+    case BINARY:
+      return compare(reader.getBinary(), binaryValue);
+    default:
+      throw new IllegalArgumentException("Unsupported column type: " + descriptor.getType());
+    }
+  }
+
+  private static int compare(long a, long b) {
+    return a < b ? -1 : (a == b ? 0 : 1);
+  }
+
+  static int compare(Binary binary, byte[] constant) {
+    Preconditions.checkArgument(constant != null, "binary columns are compared with strings");
+    byte[] bytes = binary.getBytes();
+    int length = Math.min(bytes.length, constant.length);
+    for (int i = 0; i < length; i++) {
+      int diff = (bytes[i] & 0xFF) - (constant[i] & 0xFF);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return bytes.length - constant.length;
+  }
+
+  @Override
+  public String toString() {
+    return column + " " + operator + (value == null ? "" : " " + value);
+  }
+}
@@ -0,0 +1,235 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import parquet.column.ColumnDescriptor;
+import parquet.io.api.Binary;
+import parquet.schema.PrimitiveType.PrimitiveTypeName;
+
+/**
+ * The values of one primitive column for the rows of a {@link ColumnBatch}.
+ * Only the array matching the column type is allocated. Binary values are
+ * copied into a byte array shared by all the rows of the vector.
+ */
+public class ColumnVector {
+
+  private final ColumnDescriptor descriptor;
+  private final PrimitiveTypeName type;
+
+  private boolean[] nulls;
+  private int[] ints;
+  private long[] longs;
+  private float[] floats;
+  private double[] doubles;
+  private boolean[] booleans;
+  private int[] offsets;
+  private int[] lengths;
+  private byte[] bytes;
+  private int bytesSize;
+
+  // appends to bytes, room must have been made with ensureBytesCapacity
+  private final OutputStream bytesWriter = new OutputStream() {
+    @Override
+    public void write(int b) {
+      bytes[bytesSize++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      System.arraycopy(b, off, bytes, bytesSize, len);
+      bytesSize += len;
+    }
+  };
+
+  ColumnVector(ColumnDescriptor descriptor, int capacity) {
+    this.descriptor = descriptor;
+    this.type = descriptor.getType();
+    this.nulls = new boolean[capacity];
+    switch (type) {
+    case BOOLEAN:
+      booleans = new boolean[capacity];
+      break;
+    case INT32:
+      ints = new int[capacity];
+      break;
+    case INT64:
+      longs = new long[capacity];
+      break;
+    case FLOAT:
+      floats = new float[capacity];
+      break;
+    case DOUBLE:
+      doubles = new double[capacity];
+      break;
+    case BINARY:
+      offsets = new int[capacity];
+      lengths = new int[capacity];
+      bytes = new byte[capacity * 16];
+      break;
+    default:
+      throw new IllegalArgumentException("Unsupported column type: " + type);
+    }
+  }
+
+  public ColumnDescriptor getDescriptor() {
+    return descriptor;
+  }
+
+  public PrimitiveTypeName getType() {
+    return type;
+  }
+
+  void ensureCapacity(int capacity) {
+    if (capacity <= nulls.length) {
+      return;
+    }
+    int newCapacity = Math.max(capacity, nulls.length * 2);
+    nulls = Arrays.copyOf(nulls, newCapacity);
+    switch (type) {
+    case BOOLEAN:
+      booleans = Arrays.copyOf(booleans, newCapacity);
+      break;
+    case INT32:
+      ints = Arrays.copyOf(ints, newCapacity);
+      break;
+    case INT64:
+      longs = Arrays.copyOf(longs, newCapacity);
+      break;
+    case FLOAT:
+      floats = Arrays.copyOf(floats, newCapacity);
+      break;
+    case DOUBLE:
+      doubles = Arrays.copyOf(doubles, newCapacity);
+      break;
+    case BINARY:
+      offsets = Arrays.copyOf(offsets, newCapacity);
+      lengths = Arrays.copyOf(lengths, newCapacity);
+      break;
+    }
+  }
+
+  void reset() {
+    bytesSize = 0;
+  }
+
+  public boolean isNull(int row) {
+    return nulls[row];
+  }
+
+  public void setNull(int row) {
+    nulls[row] = true;
+  }
+
+  public boolean getBoolean(int row) {
+    return booleans[row];
+  }
+
+  public void setBoolean(int row, boolean value) {
+    nulls[row] = false;
+    booleans[row] = value;
+  }
+
+  public int getInt(int row) {
+    return ints[row];
+  }
+
+  public void setInt(int row, int value) {
+    nulls[row] = false;
+    ints[row] = value;
+  }
+
+  public long getLong(int row) {
+    return longs[row];
+  }
+
+  public void setLong(int row, long value) {
+    nulls[row] = false;
+    longs[row] = value;
+  }
+
+  public float getFloat(int row) {
+    return floats[row];
+  }
+
+  public void setFloat(int row, float value) {
+    nulls[row] = false;
+    floats[row] = value;
+  }
+
+  public double getDouble(int row) {
+    return doubles[row];
+  }
+
+  public void setDouble(int row, double value) {
+    nulls[row] = false;
+    doubles[row] = value;
+  }
+
+  /**
+   * @return the array holding the binary values, see {@link #getBinaryOffset(int)}
+   */
+  public byte[] getBinaryBytes() {
+    return bytes;
+  }
+
+  public int getBinaryOffset(int row) {
+    return offsets[row];
+  }
+
+  public int getBinaryLength(int row) {
+    return lengths[row];
+  }
+
+  public void setBinary(int row, byte[] value, int offset, int length) {
+    ensureBytesCapacity(length);
+    System.arraycopy(value, offset, bytes, bytesSize, length);
+    setBinaryAt(row, length);
+  }
+
+  public void setBinary(int row, Binary value) throws IOException {
+    int length = value.length();
+    ensureBytesCapacity(length);
+    int offset = bytesSize;
+    value.writeTo(bytesWriter);
+    bytesSize = offset;
+    setBinaryAt(row, length);
+  }
+
+  /**
+   * Makes room for length more bytes, to be written at {@link #getBinaryBytesSize()}
+   * before calling {@link #setBinaryAt(int, int)}.
+   */
+  void ensureBytesCapacity(int length) {
+    if (bytesSize + length > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytesSize + length, bytes.length * 2));
+    }
+  }
+
+  int getBinaryBytesSize() {
+    return bytesSize;
+  }
+
+  void setBinaryAt(int row, int length) {
+    nulls[row] = false;
+    offsets[row] = bytesSize;
+    lengths[row] = length;
+    bytesSize += length;
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import parquet.Log;
+
+/**
+ * Runs the cells of a compatibility matrix, such as versions × datasets,
+ * as independent tasks on a bounded executor and reports how long each
+ * cell took. Cells must write to their own output paths.
+ * All cells run even when some fail, the failures are then reported together.
+ * The number of threads defaults to the compat.threads system property,
+ * or the number of processors.
+ */
+public class CompatibilityMatrix {
+
+  private static final Log LOG = Log.getLog(CompatibilityMatrix.class);
+
+  public interface Cell {
+    void run() throws Exception;
+  }
+
+  private final String name;
+  private final int parallelism;
+  private final List<String> rows = new ArrayList<String>();
+  private final List<String> columns = new ArrayList<String>();
+  private final List<Cell> cells = new ArrayList<Cell>();
+
+  public CompatibilityMatrix(String name) {
+    this(name, Integer.getInteger("compat.threads", Runtime.getRuntime().availableProcessors()));
+  }
+
+  public CompatibilityMatrix(String name, int parallelism) {
+    this.name = name;
+    this.parallelism = parallelism;
+  }
+
+  public CompatibilityMatrix add(String row, String column, Cell cell) {
+    rows.add(row);
+    columns.add(column);
+    cells.add(cell);
+    return this;
+  }
+
+  /**
+   * Runs all the cells and fails with the failures of all failed cells.
+   */
+  public void run() {
+    LOG.info("Running " + cells.size() + " cells of " + name + " with " + parallelism + " threads");
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, cells.size())));
+    List<Future<Long>> results = new ArrayList<Future<Long>>();
+    try {
+      for (final Cell cell : cells) {
+        results.add(executor.submit(new Callable<Long>() {
+          @Override
+          public Long call() throws Exception {
+            long start = System.nanoTime();
+            cell.run();
+            return (System.nanoTime() - start) / 1000000;
+          }
+        }));
+      }
+
+      StringBuilder report = new StringBuilder(name);
+      StringBuilder failures = new StringBuilder();
+      Throwable firstFailure = null;
+      for (int i = 0; i < cells.size(); i++) {
+        String cellName = rows.get(i) + " x " + columns.get(i);
+        report.append('\n').append(cellName).append(": ");
+        try {
+          report.append(get(results.get(i))).append(" ms");
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          report.append("FAILED");
+          failures.append('\n').append(cellName).append(": ").append(cause);
+          if (firstFailure == null) {
+            firstFailure = cause;
+          }
+        }
+      }
+      LOG.info(report);
+
+      if (firstFailure != null) {
+        AssertionError error = new AssertionError(name + " failed" + failures);
+        error.initCause(firstFailure);
+        throw error;
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static <T> T get(Future<T> future) throws ExecutionException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while running the matrix", e);
+    }
+  }
+}
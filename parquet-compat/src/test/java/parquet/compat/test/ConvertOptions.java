@@ -0,0 +1,218 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import parquet.Preconditions;
+import parquet.hadoop.ParquetWriter;
+import parquet.hadoop.metadata.CompressionCodecName;
+
+/**
+ * Settings of a csv to parquet conversion.
+ * Setters return this so options can be chained.
+ */
+public class ConvertOptions {
+
+  private CompressionCodecName codec = CompressionCodecName.UNCOMPRESSED;
+  private boolean enableDictionary = false;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private boolean writeSummary = true;
+  private int pipelineDepth = threads + 2;
+  private int chunkSize = 1024 * 1024;
+  private boolean memoryMapped = true;
+  private int blockSize = ParquetWriter.DEFAULT_BLOCK_SIZE;
+  private int pageSize = ParquetWriter.DEFAULT_PAGE_SIZE;
+  private boolean adaptiveDictionary = false;
+  private int dictionarySampleRows = 10000;
+  private double dictionaryMinSavings = 0.1;
+  private boolean memoryManaged = false;
+
+  public ConvertOptions() {
+  }
+
+  public ConvertOptions(ConvertOptions options) {
+    this.codec = options.codec;
+    this.enableDictionary = options.enableDictionary;
+    this.threads = options.threads;
+    this.writeSummary = options.writeSummary;
+    this.pipelineDepth = options.pipelineDepth;
+    this.chunkSize = options.chunkSize;
+    this.memoryMapped = options.memoryMapped;
+    this.blockSize = options.blockSize;
+    this.pageSize = options.pageSize;
+    this.adaptiveDictionary = options.adaptiveDictionary;
+    this.dictionarySampleRows = options.dictionarySampleRows;
+    this.dictionaryMinSavings = options.dictionaryMinSavings;
+    this.memoryManaged = options.memoryManaged;
+  }
+
+  public CompressionCodecName getCodec() {
+    return codec;
+  }
+
+  public ConvertOptions setCodec(CompressionCodecName codec) {
+    this.codec = codec;
+    return this;
+  }
+
+  public boolean isEnableDictionary() {
+    return enableDictionary;
+  }
+
+  public ConvertOptions setEnableDictionary(boolean enableDictionary) {
+    this.enableDictionary = enableDictionary;
+    return this;
+  }
+
+  /**
+   * @return number of workers of the parallel conversion
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  public ConvertOptions setThreads(int threads) {
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * @return whether a parallel conversion writes a _metadata file merging the footers of its part files
+   */
+  public boolean isWriteSummary() {
+    return writeSummary;
+  }
+
+  public ConvertOptions setWriteSummary(boolean writeSummary) {
+    this.writeSummary = writeSummary;
+    return this;
+  }
+
+  /**
+   * @return number of chunks in flight between the stages of a pipelined conversion,
+   * at least 2 as the reader holds the chunk it fills while it takes the next one
+   */
+  public int getPipelineDepth() {
+    return pipelineDepth;
+  }
+
+  public ConvertOptions setPipelineDepth(int pipelineDepth) {
+    Preconditions.checkArgument(pipelineDepth >= 2, "pipeline depth must be at least 2: " + pipelineDepth);
+    this.pipelineDepth = pipelineDepth;
+    return this;
+  }
+
+  /**
+   * @return bytes of csv read at once by a pipelined conversion
+   */
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  public ConvertOptions setChunkSize(int chunkSize) {
+    this.chunkSize = chunkSize;
+    return this;
+  }
+
+  /**
+   * @return whether the csv is read through a {@link MappedFile} rather than a stream
+   */
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+  public ConvertOptions setMemoryMapped(boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
+    return this;
+  }
+
+  /**
+   * @return row group size of the written files
+   */
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  public ConvertOptions setBlockSize(int blockSize) {
+    this.blockSize = blockSize;
+    return this;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public ConvertOptions setPageSize(int pageSize) {
+    this.pageSize = pageSize;
+    return this;
+  }
+
+  /**
+   * @return whether the dictionary is enabled by a {@link DictionaryPlanner}
+   * sampling the csv, rather than by {@link #isEnableDictionary()}
+   */
+  public boolean isAdaptiveDictionary() {
+    return adaptiveDictionary;
+  }
+
+  public ConvertOptions setAdaptiveDictionary(boolean adaptiveDictionary) {
+    this.adaptiveDictionary = adaptiveDictionary;
+    return this;
+  }
+
+  /**
+   * @return number of rows sampled by the adaptive dictionary
+   */
+  public int getDictionarySampleRows() {
+    return dictionarySampleRows;
+  }
+
+  public ConvertOptions setDictionarySampleRows(int dictionarySampleRows) {
+    this.dictionarySampleRows = dictionarySampleRows;
+    return this;
+  }
+
+  /**
+   * @return the smallest fraction of the plain encoded bytes of the binary columns
+   * the adaptive dictionary must save to be enabled
+   */
+  public double getDictionaryMinSavings() {
+    return dictionaryMinSavings;
+  }
+
+  public ConvertOptions setDictionaryMinSavings(double dictionaryMinSavings) {
+    this.dictionaryMinSavings = dictionaryMinSavings;
+    return this;
+  }
+
+  /**
+   * @return whether the row group size of the writers is allocated by the {@link WriterMemoryManager}
+   */
+  public boolean isMemoryManaged() {
+    return memoryManaged;
+  }
+
+  public ConvertOptions setMemoryManaged(boolean memoryManaged) {
+    this.memoryManaged = memoryManaged;
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return "codec=" + codec + " dictionary=" + (adaptiveDictionary ? "adaptive" : String.valueOf(enableDictionary))
+        + " threads=" + threads + " blockSize=" + blockSize + (memoryManaged ? " (managed)" : "")
+        + " pageSize=" + pageSize;
+  }
+}
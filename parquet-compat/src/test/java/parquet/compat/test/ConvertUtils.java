@@ -16,13 +16,16 @@
 package parquet.compat.test;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
-import java.util.regex.Pattern;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
@@ -31,23 +34,38 @@ import parquet.Log;
 import parquet.Preconditions;
 import parquet.column.page.PageReadStore;
 import parquet.example.data.Group;
-import parquet.example.data.simple.convert.GroupRecordConverter;
 import parquet.hadoop.ParquetFileReader;
 import parquet.hadoop.ParquetReader;
 import parquet.hadoop.example.GroupReadSupport;
+import parquet.hadoop.metadata.BlockMetaData;
+import parquet.hadoop.metadata.ColumnChunkMetaData;
+import parquet.hadoop.metadata.CompressionCodecName;
 import parquet.hadoop.metadata.ParquetMetadata;
 import parquet.io.ColumnIOFactory;
 import parquet.io.MessageColumnIO;
 import parquet.io.RecordReader;
 import parquet.schema.MessageType;
 import parquet.schema.MessageTypeParser;
+import parquet.schema.PrimitiveType.PrimitiveTypeName;
 
 public class ConvertUtils {
 
   private static final Log LOG = Log.getLog(ConvertUtils.class);
 
+  // the column IO trees of the most recently exported schemas
+  private static final int MAX_COLUMN_IOS = 16;
+  private static final Map<MessageType, MessageColumnIO> COLUMN_IOS =
+      new LinkedHashMap<MessageType, MessageColumnIO>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<MessageType, MessageColumnIO> eldest) {
+          return size() > MAX_COLUMN_IOS;
+        }
+      };
+
   public static final String CSV_DELIMITER= "|";
 
+  private static final int BATCH_SIZE = 4096;
+
   private static String readFile(String path) throws IOException {
     BufferedReader reader = new BufferedReader(new FileReader(path));
     StringBuilder stringBuilder = new StringBuilder();
@@ -68,10 +86,13 @@ public class ConvertUtils {
   }
 
   public static String getSchema(File csvFile) throws IOException {
+    return readFile(getSchemaFile(csvFile).getAbsolutePath());
+  }
+
+  static File getSchemaFile(File csvFile) {
     String fileName = csvFile.getName().substring(
         0, csvFile.getName().length() - ".csv".length()) + ".schema";
-    File schemaFile = new File(csvFile.getParentFile(), fileName);
-    return readFile(schemaFile.getAbsolutePath());
+    return new File(csvFile.getParentFile(), fileName);
   }
   
   public static void convertCsvToParquet(File csvFile, File outputParquetFile) throws IOException {
@@ -79,6 +100,17 @@ public class ConvertUtils {
   }
 
   public static void convertCsvToParquet(File csvFile, File outputParquetFile, boolean enableDictionary) throws IOException {
+    convertCsvToParquet(csvFile, outputParquetFile, CompressionCodecName.UNCOMPRESSED, enableDictionary);
+  }
+
+  public static void convertCsvToParquet(File csvFile, File outputParquetFile,
+      CompressionCodecName codecName, boolean enableDictionary) throws IOException {
+    convertCsvToParquet(csvFile, outputParquetFile,
+        new ConvertOptions().setCodec(codecName).setEnableDictionary(enableDictionary));
+  }
+
+  public static void convertCsvToParquet(File csvFile, File outputParquetFile, ConvertOptions options)
+      throws IOException {
     LOG.info("Converting " + csvFile.getName() + " to " + outputParquetFile.getName());
     String rawSchema = getSchema(csvFile);
     if(outputParquetFile.exists()) {
@@ -89,23 +121,157 @@ public class ConvertUtils {
     Path path = new Path(outputParquetFile.toURI());
 
     MessageType schema = MessageTypeParser.parseMessageType(rawSchema);
-    CsvParquetWriter writer = new CsvParquetWriter(path, schema, enableDictionary);
+    options = planDictionary(csvFile, schema, options);
+    CsvRecordParquetWriter writer = CsvRecordParquetWriter.open(path, schema, options);
 
-    BufferedReader br = new BufferedReader(new FileReader(csvFile));
-    String line;
+    Metrics metrics = Metrics.getDefault();
+    Metrics.Timer tokenizeTimer = metrics.timer("csv.tokenize");
+    Metrics.Timer writeTimer = metrics.timer("parquet.write");
+    CsvTokenizer tokenizer = new CsvTokenizer(openCsv(csvFile, options));
+    CsvRecord record = new CsvRecord();
     int lineNumber = 0;
     try {
-      while ((line = br.readLine()) != null) {
-        String[] fields = line.split(Pattern.quote(CSV_DELIMITER));
-        writer.write(Arrays.asList(fields));
-        ++lineNumber;
+      // timed per record, reported per batch of lines
+      long tokenizeNanos = 0;
+      long writeNanos = 0;
+      long start = System.nanoTime();
+      while (tokenizer.next(record)) {
+        long tokenized = System.nanoTime();
+        writer.write(record);
+        long written = System.nanoTime();
+        tokenizeNanos += tokenized - start;
+        writeNanos += written - tokenized;
+        start = written;
+        if (++lineNumber % BATCH_SIZE == 0) {
+          tokenizeTimer.update(tokenizeNanos, BATCH_SIZE);
+          writeTimer.update(writeNanos, BATCH_SIZE);
+          tokenizeNanos = 0;
+          writeNanos = 0;
+        }
+      }
+      if (lineNumber % BATCH_SIZE != 0) {
+        tokenizeTimer.update(tokenizeNanos + System.nanoTime() - start, lineNumber % BATCH_SIZE);
+        writeTimer.update(writeNanos, lineNumber % BATCH_SIZE);
       }
 
+      // flushes the last row group and writes the footer
+      start = System.nanoTime();
       writer.close();
+      metrics.timer("parquet.close").update(System.nanoTime() - start, 1);
     } finally {
       LOG.info("Number of lines: " + lineNumber);
-      Utils.closeQuietly(br);
-    } 
+      Utils.closeQuietly(writer);
+      Utils.closeQuietly(tokenizer);
+    }
+    metrics.counter("csv.lines").add(lineNumber);
+    metrics.counter("csv.bytes").add(csvFile.length());
+    addFileStats(metrics, "write", outputParquetFile);
+  }
+
+  // the per column stats of the footer and the bytes of the footer itself
+  private static void addFileStats(Metrics metrics, String prefix, File parquetFile) throws IOException {
+    ParquetMetadata footer = FooterCache.getDefault().readFooter(new Configuration(), new Path(parquetFile.toURI()));
+    metrics.addColumnStats(prefix, footer);
+    long chunkBytes = 0;
+    for (BlockMetaData block : footer.getBlocks()) {
+      metrics.histogram(prefix + ".row_group_bytes").update(block.getTotalByteSize());
+      for (ColumnChunkMetaData chunk : block.getColumns()) {
+        chunkBytes += chunk.getTotalSize();
+      }
+    }
+    // magic at the start, footer length and magic at the end
+    metrics.counter(prefix + ".footer_bytes").add(parquetFile.length() - chunkBytes - 12);
+    metrics.counter(prefix + ".parquet_bytes").add(parquetFile.length());
+  }
+
+  /**
+   * @return options with the dictionary of the file enabled as planned by a {@link DictionaryPlanner}
+   * sampling csvFile when they have the adaptive dictionary, options otherwise
+   */
+  static ConvertOptions planDictionary(File csvFile, MessageType schema, ConvertOptions options)
+      throws IOException {
+    if (!options.isAdaptiveDictionary()) {
+      return options;
+    }
+    long start = System.nanoTime();
+    DictionaryPlanner planner = DictionaryPlanner.sample(csvFile, schema, options);
+    Metrics metrics = Metrics.getDefault();
+    metrics.timer("dictionary.plan").update(System.nanoTime() - start, planner.getRows());
+    metrics.setValue("dictionary.enabled", String.valueOf(planner.isEnableDictionary()));
+    metrics.setValue("dictionary.columns", planner.getDictionaryColumns().toString());
+    LOG.info("Dictionary of " + csvFile.getName() + ": " + planner);
+    return new ConvertOptions(options).setAdaptiveDictionary(false)
+        .setEnableDictionary(planner.isEnableDictionary());
+  }
+
+  static InputStream openCsv(File csvFile, ConvertOptions options) throws IOException {
+    return options.isMemoryMapped() ? MappedFile.open(csvFile) : new FileInputStream(csvFile);
+  }
+
+  /**
+   * @return the csv converted with options by this version, from the {@link ArtifactCache}
+   */
+  public static File convertCsvToParquetCached(final File csvFile, final ConvertOptions options)
+      throws IOException {
+    ArtifactCache cache = ArtifactCache.getDefault();
+    String key = cache.key(csvFile, getSchemaFile(csvFile), Utils.getCurrentVersion(),
+        options.isAdaptiveDictionary() ? "adaptive." + options.getDictionarySampleRows()
+            + "." + options.getDictionaryMinSavings()
+            : options.isEnableDictionary() ? "dict" : "plain", options.getCodec(),
+        options.isMemoryManaged() ? options.getBlockSize() + ".managed" : options.getBlockSize(),
+        options.getPageSize());
+    return cache.get(key, ".parquet", new ArtifactCache.Producer() {
+      @Override
+      public void produce(File output) throws IOException {
+        convertCsvToParquet(csvFile, output, options);
+      }
+    });
+  }
+
+  /**
+   * Converts the csv file into a directory of part files written in parallel,
+   * see {@link ParallelCsvConverter}. The directory can be read back with
+   * {@link #convertParquetToCSV(File, File)}.
+   */
+  public static void convertCsvToParquetParallel(File csvFile, File outputParquetDir, ConvertOptions options)
+      throws IOException {
+    LOG.info("Converting " + csvFile.getName() + " to " + outputParquetDir.getName());
+    MessageType schema = MessageTypeParser.parseMessageType(getSchema(csvFile));
+    options = planDictionary(csvFile, schema, options);
+    long lineNumber = new ParallelCsvConverter(csvFile, schema, options).convert(outputParquetDir);
+    LOG.info("Number of lines: " + lineNumber);
+  }
+
+  /**
+   * Converts the csv file overlapping reads, parsing and writes,
+   * see {@link CsvIngestPipeline}.
+   */
+  public static void convertCsvToParquetPipelined(File csvFile, File outputParquetFile, ConvertOptions options)
+      throws IOException {
+    LOG.info("Converting " + csvFile.getName() + " to " + outputParquetFile.getName());
+    MessageType schema = MessageTypeParser.parseMessageType(getSchema(csvFile));
+    options = planDictionary(csvFile, schema, options);
+    long lineNumber = new CsvIngestPipeline(csvFile, schema, options).convert(outputParquetFile);
+    LOG.info("Number of lines: " + lineNumber);
+  }
+
+  /**
+   * @return the file itself, or the parquet files of a directory in name order
+   */
+  public static File[] getParquetFiles(File parquetFile) throws IOException {
+    if (!parquetFile.isDirectory()) {
+      return new File[] { parquetFile };
+    }
+    File[] files = parquetFile.listFiles(new FilenameFilter() {
+      public boolean accept(File dir, String name) {
+        return name.endsWith(".parquet") && !name.startsWith("_") && !name.startsWith(".");
+      }
+    });
+    if (files == null) {
+      throw new IOException("Could not list " + parquetFile.getAbsolutePath());
+    }
+    Arrays.sort(files);
+    return files;
   }
 
   public static void convertParquetToCSV(File parquetFile, File csvOutputFile) throws IOException {
@@ -119,42 +285,258 @@ public class ConvertUtils {
     LOG.info("Converting " + parquetFile.getName() + " to " + csvOutputFile.getName());
 
 
-    Path parquetFilePath = new Path(parquetFile.toURI());
-
     Configuration configuration = new Configuration(true);
 
-    GroupReadSupport readSupport = new GroupReadSupport();
-    ParquetMetadata readFooter = ParquetFileReader.readFooter(configuration, parquetFilePath);
-    MessageType schema = readFooter.getFileMetaData().getSchema();
-
-    readSupport.init(configuration, null, schema);
-    BufferedWriter w = new BufferedWriter(new FileWriter(csvOutputFile));
-    ParquetReader<Group> reader = new ParquetReader<Group>(parquetFilePath, readSupport);
+    Metrics metrics = Metrics.getDefault();
+    Metrics.Timer decodeTimer = metrics.timer("parquet.decode");
+    Metrics.Timer formatTimer = metrics.timer("csv.format");
+    CsvByteSink w = new CsvByteSink(csvOutputFile);
+    ParquetReader<Group> reader = null;
     try{
-      Group g = null;
-      while( (g = reader.read())!= null) {
-        writeGroup(w, g, schema);
+      for (File file : getParquetFiles(parquetFile)) {
+        Path parquetFilePath = new Path(file.toURI());
+
+        GroupReadSupport readSupport = new GroupReadSupport();
+        ParquetMetadata readFooter = FooterCache.getDefault().readFooter(configuration, parquetFilePath);
+        MessageType schema = readFooter.getFileMetaData().getSchema();
+        PrimitiveTypeName[] types = getColumnTypes(schema);
+
+        readSupport.init(configuration, null, schema);
+        reader = new ParquetReader<Group>(parquetFilePath, readSupport);
+        // timed per record, reported per batch of rows
+        long decodeNanos = 0;
+        long formatNanos = 0;
+        long rows = 0;
+        long start = System.nanoTime();
+        Group g = null;
+        while( (g = reader.read())!= null) {
+          long decoded = System.nanoTime();
+          writeGroup(w, g, types);
+          long formatted = System.nanoTime();
+          decodeNanos += decoded - start;
+          formatNanos += formatted - decoded;
+          start = formatted;
+          if (++rows % BATCH_SIZE == 0) {
+            decodeTimer.update(decodeNanos, BATCH_SIZE);
+            formatTimer.update(formatNanos, BATCH_SIZE);
+            decodeNanos = 0;
+            formatNanos = 0;
+          }
+        }
+        if (rows % BATCH_SIZE != 0) {
+          decodeTimer.update(decodeNanos + System.nanoTime() - start, rows % BATCH_SIZE);
+          formatTimer.update(formatNanos, rows % BATCH_SIZE);
+        }
+        metrics.counter("parquet.rows").add(rows);
+        metrics.addColumnStats("read", readFooter);
+        reader.close();
+        reader = null;
       }
-      reader.close();
     }
     finally {
+      Utils.closeQuietly(reader);
       Utils.closeQuietly(w);
     }
   }
 
-  private static void writeGroup(BufferedWriter w, Group g, MessageType schema) 
-      throws IOException{
-    for (int j = 0; j < schema.getFieldCount(); j++) {
+  /**
+   * Exports the row groups of the file, or of the part files of a directory,
+   * in parallel, see {@link ParallelParquetExporter}.
+   */
+  public static void convertParquetToCSVParallel(File parquetFile, File csvOutputFile, int parallelism)
+      throws IOException {
+    Preconditions.checkArgument(parquetFile.getName().endsWith(".parquet"), 
+        "parquet file should have .parquet extension");
+    Preconditions.checkArgument(csvOutputFile.getName().endsWith(".csv"), 
+        "csv file should have .csv extension");
+    Preconditions.checkArgument(!csvOutputFile.exists(), 
+        "Output file " + csvOutputFile.getAbsolutePath() + " already exists");
+
+    LOG.info("Converting " + parquetFile.getName() + " to " + csvOutputFile.getName());
+
+    new ParallelParquetExporter(new Configuration(true), parallelism)
+        .export(getParquetFiles(parquetFile), csvOutputFile);
+  }
+
+  /**
+   * Exports through {@link ColumnBatchReader}, decoding the columns into
+   * batches instead of assembling a {@link Group} per row.
+   */
+  public static void convertParquetToCSVColumnar(File parquetFile, File csvOutputFile) throws IOException {
+    Preconditions.checkArgument(parquetFile.getName().endsWith(".parquet"), 
+        "parquet file should have .parquet extension");
+    Preconditions.checkArgument(csvOutputFile.getName().endsWith(".csv"), 
+        "csv file should have .csv extension");
+    Preconditions.checkArgument(!csvOutputFile.exists(), 
+        "Output file " + csvOutputFile.getAbsolutePath() + " already exists");
+
+    LOG.info("Converting " + parquetFile.getName() + " to " + csvOutputFile.getName());
+
+    Configuration configuration = new Configuration(true);
+
+    Metrics metrics = Metrics.getDefault();
+    Metrics.Timer decodeTimer = metrics.timer("parquet.decode.columnar");
+    Metrics.Timer formatTimer = metrics.timer("csv.format.columnar");
+    CsvByteSink w = new CsvByteSink(csvOutputFile);
+    try {
+      for (File file : getParquetFiles(parquetFile)) {
+        Path parquetFilePath = new Path(file.toURI());
+        ParquetMetadata readFooter = FooterCache.getDefault().readFooter(configuration, parquetFilePath);
+        MessageType schema = readFooter.getFileMetaData().getSchema();
+        ColumnBatchReader reader = new ColumnBatchReader(
+            configuration, parquetFilePath, readFooter.getBlocks(), schema);
+        try {
+          ColumnBatch batch = new ColumnBatch(schema, BATCH_SIZE);
+          long start = System.nanoTime();
+          while (reader.next(batch, BATCH_SIZE)) {
+            long decoded = System.nanoTime();
+            writeBatch(w, batch);
+            long formatted = System.nanoTime();
+            decodeTimer.update(decoded - start, batch.size());
+            formatTimer.update(formatted - decoded, batch.size());
+            metrics.counter("parquet.rows").add(batch.size());
+            start = formatted;
+          }
+        } finally {
+          Utils.closeQuietly(reader);
+        }
+        metrics.addColumnStats("read", readFooter);
+      }
+    } finally {
+      Utils.closeQuietly(w);
+    }
+  }
+
+  /**
+   * Exports the columns of the rows matching all the predicates through {@link ParquetScan}.
+   * @param columns the columns to export, or null for all of them
+   * @return compressed bytes of the column chunks read
+   */
+  public static long convertParquetToCSV(File parquetFile, File csvOutputFile,
+      List<String> columns, List<ColumnPredicate> predicates) throws IOException {
+    Preconditions.checkArgument(parquetFile.getName().endsWith(".parquet"), 
+        "parquet file should have .parquet extension");
+    Preconditions.checkArgument(csvOutputFile.getName().endsWith(".csv"), 
+        "csv file should have .csv extension");
+    Preconditions.checkArgument(!csvOutputFile.exists(), 
+        "Output file " + csvOutputFile.getAbsolutePath() + " already exists");
+
+    LOG.info("Converting " + parquetFile.getName() + " to " + csvOutputFile.getName()
+        + " with columns " + columns + " where " + predicates);
+
+    Configuration configuration = new Configuration(true);
+
+    long bytesRead = 0;
+    CsvByteSink w = new CsvByteSink(csvOutputFile);
+    try {
+      for (File file : getParquetFiles(parquetFile)) {
+        Path parquetFilePath = new Path(file.toURI());
+        ParquetMetadata readFooter = FooterCache.getDefault().readFooter(configuration, parquetFilePath);
+        ParquetScan scan = new ParquetScan(configuration, parquetFilePath, readFooter, columns, predicates);
+        try {
+          ColumnBatch batch = new ColumnBatch(scan.getSchema(), BATCH_SIZE);
+          while (scan.next(batch, BATCH_SIZE)) {
+            writeBatch(w, batch);
+          }
+        } finally {
+          Utils.closeQuietly(scan);
+        }
+        bytesRead += scan.getBytesRead();
+      }
+    } finally {
+      Utils.closeQuietly(w);
+    }
+    return bytesRead;
+  }
+
+  static void writeBatch(CsvByteSink w, ColumnBatch batch) throws IOException {
+    int columnCount = batch.getColumnCount();
+    for (int row = 0; row < batch.size(); row++) {
+      for (int j = 0; j < columnCount; j++) {
+        if (j > 0) {
+          w.writeDelimiter();
+        }
+        ColumnVector vector = batch.getVector(j);
+        if (vector.isNull(row)) {
+          continue;
+        }
+        switch (vector.getType()) {
+        case BOOLEAN:
+          w.writeBoolean(vector.getBoolean(row));
+          break;
+        case INT32:
+          w.writeInt(vector.getInt(row));
+          break;
+        case INT64:
+          w.writeLong(vector.getLong(row));
+          break;
+        case FLOAT:
+          w.writeFloat(vector.getFloat(row));
+          break;
+        case DOUBLE:
+          w.writeDouble(vector.getDouble(row));
+          break;
+        case BINARY:
+          w.write(vector.getBinaryBytes(), vector.getBinaryOffset(row), vector.getBinaryLength(row));
+          break;
+        default:
+          throw new IOException("Unsupported column type: " + vector.getType());
+        }
+      }
+      w.writeNewLine();
+    }
+  }
+
+  static PrimitiveTypeName[] getColumnTypes(MessageType schema) {
+    PrimitiveTypeName[] types = new PrimitiveTypeName[schema.getFieldCount()];
+    for (int j = 0; j < types.length; j++) {
+      types[j] = schema.getType(j).asPrimitiveType().getPrimitiveTypeName();
+    }
+    return types;
+  }
+
+  /**
+   * Writes the fields of a flat record with the typed getters, a missing
+   * value is written as an empty field. Groups of this version of parquet
+   * have no getters for longs, floats and doubles, their values are written
+   * as formatted by the group.
+   */
+  static void writeGroup(CsvByteSink w, Group g, PrimitiveTypeName[] types) throws IOException {
+    for (int j = 0; j < types.length; j++) {
       if (j > 0) {
-        w.write(CSV_DELIMITER);
+        w.writeDelimiter();
+      }
+      if (g.getFieldRepetitionCount(j) == 0) {
+        continue;
+      }
+      switch (types[j]) {
+      case BOOLEAN:
+        w.writeBoolean(g.getBoolean(j, 0));
+        break;
+      case INT32:
+        w.writeInt(g.getInteger(j, 0));
+        break;
+      case INT64:
+      case FLOAT:
+      case DOUBLE:
+        w.writeAscii(g.getValueToString(j, 0));
+        break;
+      case BINARY:
+        w.writeBinary(g.getBinary(j, 0));
+        break;
+      default:
+        throw new IOException("Unsupported column type: " + types[j]);
       }
-      String valueToString = g.getValueToString(j, 0);
-      w.write(valueToString);
     }
-    w.write('\n');
+    w.writeNewLine();
   }
 
-  @Deprecated
+  /**
+   * Exports with the low level reader. The column IO tree of a schema is
+   * built once and cached, and the records are materialized into one reused
+   * {@link ColumnBatch} by a {@link ColumnBatchMaterializer} shared by the
+   * files with the same schema.
+   */
   public static void convertParquetToCSVEx(File parquetFile, File csvOutputFile) throws IOException {
     Preconditions.checkArgument(parquetFile.getName().endsWith(".parquet"), 
         "parquet file should have .parquet extension");
@@ -165,33 +547,69 @@ public class ConvertUtils {
 
     LOG.info("Converting " + parquetFile.getName() + " to " + csvOutputFile.getName());
 
-    Path parquetFilePath = new Path(parquetFile.toURI());
-
     Configuration configuration = new Configuration(true);
 
-    // TODO Following can be changed by using ParquetReader instead of ParquetFileReader
-    ParquetMetadata readFooter = ParquetFileReader.readFooter(configuration, parquetFilePath);
-    MessageType schema = readFooter.getFileMetaData().getSchema();
-    ParquetFileReader parquetFileReader = new ParquetFileReader(
-        configuration, parquetFilePath, readFooter.getBlocks(), schema.getColumns());
-    BufferedWriter w = new BufferedWriter(new FileWriter(csvOutputFile));
-    PageReadStore pages = null;
+    MessageType materializerSchema = null;
+    ColumnBatchMaterializer materializer = null;
+    CsvByteSink w = new CsvByteSink(csvOutputFile);
     try {
-      while (null != (pages = parquetFileReader.readNextRowGroup())) {
-        final long rows = pages.getRowCount();
-        LOG.info("Number of rows: " + rows);
-
-        final MessageColumnIO columnIO = new ColumnIOFactory().getColumnIO(schema);
-        final RecordReader<Group> recordReader = columnIO.getRecordReader(pages, new GroupRecordConverter(schema));
-        for (int i = 0; i < rows; i++) {
-          final Group g = recordReader.read();
-          writeGroup(w, g, schema);
+      for (File file : getParquetFiles(parquetFile)) {
+        Path parquetFilePath = new Path(file.toURI());
+        ParquetMetadata readFooter = FooterCache.getDefault().readFooter(configuration, parquetFilePath);
+        MessageType schema = readFooter.getFileMetaData().getSchema();
+        if (!schema.equals(materializerSchema)) {
+          if (materializer != null) {
+            flush(w, materializer.getCurrentRecord());
+          }
+          materializerSchema = schema;
+          materializer = new ColumnBatchMaterializer(schema, BATCH_SIZE);
         }
-      } 
+        ColumnBatch batch = materializer.getCurrentRecord();
+        MessageColumnIO columnIO = getColumnIO(schema);
+        ParquetFileReader parquetFileReader = new ParquetFileReader(
+            configuration, parquetFilePath, readFooter.getBlocks(), schema.getColumns());
+        try {
+          PageReadStore pages;
+          while (null != (pages = parquetFileReader.readNextRowGroup())) {
+            long rows = pages.getRowCount();
+            RecordReader<ColumnBatch> recordReader = columnIO.getRecordReader(pages, materializer);
+            for (long i = 0; i < rows; i++) {
+              recordReader.read();
+              if (batch.size() == BATCH_SIZE) {
+                flush(w, batch);
+              }
+            }
+          }
+        } finally {
+          Utils.closeQuietly(parquetFileReader);
+        }
+      }
+      if (materializer != null) {
+        flush(w, materializer.getCurrentRecord());
+      }
     } finally {
-      Utils.closeQuietly(parquetFileReader);
       Utils.closeQuietly(w);
     }
   }
 
+  private static void flush(CsvByteSink w, ColumnBatch batch) throws IOException {
+    writeBatch(w, batch);
+    batch.reset();
+  }
+
+  /**
+   * @return the column IO tree of the schema, built once per schema while
+   * it is one of the last {@value #MAX_COLUMN_IOS} schemas used
+   */
+  static MessageColumnIO getColumnIO(MessageType schema) {
+    synchronized (COLUMN_IOS) {
+      MessageColumnIO columnIO = COLUMN_IOS.get(schema);
+      if (columnIO == null) {
+        columnIO = new ColumnIOFactory().getColumnIO(schema);
+        COLUMN_IOS.put(schema, columnIO);
+      }
+      return columnIO;
+    }
+  }
+
 }
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.util.List;
+
+import parquet.column.ColumnDescriptor;
+import parquet.io.ParquetEncodingException;
+import parquet.schema.MessageType;
+
+/**
+ * Parses {@link CsvRecord}s into the rows of a {@link ColumnBatch}.
+ * Like {@link CsvRecordWriteSupport}, the parser of each column is picked once
+ * from the schema and empty fields are nulls.
+ */
+public class CsvBatchParser {
+
+  private final List<ColumnDescriptor> cols;
+  private final FieldParser[] fieldParsers;
+
+  public CsvBatchParser(MessageType schema) {
+    this.cols = schema.getColumns();
+    this.fieldParsers = new FieldParser[cols.size()];
+    for (int i = 0; i < fieldParsers.length; i++) {
+      fieldParsers[i] = fieldParser(cols.get(i));
+    }
+  }
+
+  /**
+   * Adds the record as a new row of batch.
+   */
+  public void parse(CsvRecord record, ColumnBatch batch) {
+    if (record.size() != cols.size()) {
+      throw new ParquetEncodingException("Invalid input data. Expecting " +
+          cols.size() + " columns. Input had " + record.size() + " columns (" + cols + ") : " + record);
+    }
+    byte[] buffer = record.getBuffer();
+    int row = batch.addRow();
+    for (int i = 0; i < fieldParsers.length; i++) {
+      int length = record.getLength(i);
+      if (length > 0) {
+        fieldParsers[i].parse(batch.getVector(i), row, buffer, record.getOffset(i), length);
+      } else {
+        batch.getVector(i).setNull(row);
+      }
+    }
+  }
+
+  static abstract class FieldParser {
+    abstract void parse(ColumnVector vector, int row, byte[] bytes, int offset, int length);
+  }
+
+  private static FieldParser fieldParser(ColumnDescriptor column) {
+    switch (column.getType()) {
+    case BOOLEAN:
+      return new FieldParser() {
+        void parse(ColumnVector vector, int row, byte[] bytes, int offset, int length) {
+          vector.setBoolean(row, ByteUtils.parseBoolean(bytes, offset, length));
+        }
+      };
+    case FLOAT:
+      return new FieldParser() {
+        void parse(ColumnVector vector, int row, byte[] bytes, int offset, int length) {
+          vector.setFloat(row, ByteUtils.parseFloat(bytes, offset, length));
+        }
+      };
+    case DOUBLE:
+      return new FieldParser() {
+        void parse(ColumnVector vector, int row, byte[] bytes, int offset, int length) {
+          vector.setDouble(row, ByteUtils.parseDouble(bytes, offset, length));
+        }
+      };
+    case INT32:
+      return new FieldParser() {
+        void parse(ColumnVector vector, int row, byte[] bytes, int offset, int length) {
+          vector.setInt(row, ByteUtils.parseInt(bytes, offset, length));
+        }
+      };
+    case INT64:
+      return new FieldParser() {
+        void parse(ColumnVector vector, int row, byte[] bytes, int offset, int length) {
+          vector.setLong(row, ByteUtils.parseLong(bytes, offset, length));
+        }
+      };
+    case BINARY:
+      return new FieldParser() {
+        void parse(ColumnVector vector, int row, byte[] bytes, int offset, int length) {
+          vector.setBinary(row, bytes, offset, length);
+        }
+      };
+    default:
+      throw new ParquetEncodingException(
+          "Unsupported column type: " + column.getType());
+    }
+  }
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import parquet.io.api.Binary;
+
+/**
+ * Writes csv as bytes into a reusable direct buffer that is flushed to a
+ * channel in large writes. Numbers are formatted into bytes without
+ * intermediate Strings and binary values are copied as is, without
+ * decoding and re-encoding them.
+ * Doubles are formatted the way {@link Double#toString(double)} does.
+ */
+public class CsvByteSink extends OutputStream {
+
+  static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+  private static final byte DELIMITER = (byte) ConvertUtils.CSV_DELIMITER.charAt(0);
+  private static final byte NEW_LINE = '\n';
+  private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+  private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+  private static final byte[] MIN_LONG = String.valueOf(Long.MIN_VALUE).getBytes(CsvRecord.UTF8);
+
+  // doubles with at most that many significant digits are formatted without Double.toString
+  private static final int MAX_FAST_DIGITS = 15;
+  private static final long[] POWERS_OF_TEN = new long[MAX_FAST_DIGITS + 1];
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer;
+  // digits are formatted backwards into this
+  private final byte[] digits = new byte[20];
+
+  public CsvByteSink(File file) throws IOException {
+    this(new FileOutputStream(file).getChannel(), DEFAULT_BUFFER_SIZE);
+  }
+
+  public CsvByteSink(WritableByteChannel channel, int bufferSize) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  public void writeDelimiter() throws IOException {
+    write(DELIMITER);
+  }
+
+  public void writeNewLine() throws IOException {
+    write(NEW_LINE);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (!buffer.hasRemaining()) {
+      flushBuffer();
+    }
+    buffer.put((byte) b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (len > buffer.remaining()) {
+      flushBuffer();
+      if (len > buffer.capacity()) {
+        ByteBuffer wrapped = ByteBuffer.wrap(b, off, len);
+        while (wrapped.hasRemaining()) {
+          channel.write(wrapped);
+        }
+        return;
+      }
+    }
+    buffer.put(b, off, len);
+  }
+
+  public void writeBoolean(boolean value) throws IOException {
+    if (value) {
+      write(TRUE, 0, TRUE.length);
+    } else {
+      write(FALSE, 0, FALSE.length);
+    }
+  }
+
+  public void writeInt(int value) throws IOException {
+    writeLong(value);
+  }
+
+  public void writeLong(long value) throws IOException {
+    if (value == Long.MIN_VALUE) {
+      write(MIN_LONG, 0, MIN_LONG.length);
+      return;
+    }
+    int start = formatDigits(Math.abs(value), digits.length, 1);
+    if (value < 0) {
+      digits[--start] = '-';
+    }
+    write(digits, start, digits.length - start);
+  }
+
+  public void writeFloat(float value) throws IOException {
+    writeAscii(Float.toString(value));
+  }
+
+  public void writeDouble(double value) throws IOException {
+    if (!writeShortDouble(value)) {
+      writeAscii(Double.toString(value));
+    }
+  }
+
+  public void writeBinary(Binary value) throws IOException {
+    value.writeTo(this);
+  }
+
+  /**
+   * Formats doubles in [1e-3, 1e7), where Double.toString does not use
+   * computerized scientific notation, that are exactly the closest double
+   * to a decimal with at most 15 significant digits. The shortest such
+   * decimal is what Double.toString prints.
+   * @return false if the value has to be formatted by Double.toString
+   */
+  private boolean writeShortDouble(double value) throws IOException {
+    double abs = Math.abs(value);
+    if (!(abs >= 1e-3 && abs < 1e7)) {
+      return false;
+    }
+    int integerDigits = 1;
+    while (abs >= POWERS_OF_TEN[integerDigits]) {
+      ++integerDigits;
+    }
+    for (int scale = 0; integerDigits + scale <= MAX_FAST_DIGITS; scale++) {
+      double scaled = abs * POWERS_OF_TEN[scale];
+      long unscaled = Math.round(scaled);
+      // both operands are exact so the division is correctly rounded
+      if ((double) unscaled / POWERS_OF_TEN[scale] == abs) {
+        int start;
+        if (scale == 0) {
+          digits[digits.length - 1] = '0';
+          digits[digits.length - 2] = '.';
+          start = formatDigits(unscaled, digits.length - 2, 1);
+        } else {
+          start = formatDigits(unscaled % POWERS_OF_TEN[scale], digits.length, scale);
+          digits[--start] = '.';
+          start = formatDigits(unscaled / POWERS_OF_TEN[scale], start, 1);
+        }
+        if (value < 0) {
+          digits[--start] = '-';
+        }
+        write(digits, start, digits.length - start);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // formats a positive value ending at end, padded with zeros to minDigits, returns the start
+  private int formatDigits(long value, int end, int minDigits) {
+    int pos = end;
+    do {
+      digits[--pos] = (byte) ('0' + (value % 10));
+      value /= 10;
+    } while (value != 0);
+    while (end - pos < minDigits) {
+      digits[--pos] = '0';
+    }
+    return pos;
+  }
+
+  // s must only have ascii characters
+  void writeAscii(String s) throws IOException {
+    int length = s.length();
+    if (length > buffer.remaining()) {
+      flushBuffer();
+      if (length > buffer.capacity()) {
+        for (int i = 0; i < length; i++) {
+          write(s.charAt(i));
+        }
+        return;
+      }
+    }
+    for (int i = 0; i < length; i++) {
+      buffer.put((byte) s.charAt(i));
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  @Override
+  public void flush() throws IOException {
+    flushBuffer();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flushBuffer();
+    } finally {
+      channel.close();
+    }
+  }
+}
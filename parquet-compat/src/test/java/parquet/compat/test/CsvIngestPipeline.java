@@ -0,0 +1,260 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hadoop.fs.Path;
+
+import parquet.Log;
+import parquet.schema.MessageType;
+
+/**
+ * Converts a csv file to parquet in three stages connected by bounded queues:
+ * a reader thread cuts the file into line aligned chunks, a pool of parsers
+ * turns each chunk into a {@link ColumnBatch}, and the calling thread encodes,
+ * compresses and writes the batches in file order.
+ * A fixed number of chunks circulate between the stages, so a slow writer
+ * blocks the reader instead of buffering the file in memory.
+ * Encoding, compression and file writes stay in one stage because they all
+ * happen inside ParquetWriter.write.
+ */
+public class CsvIngestPipeline {
+
+  private static final Log LOG = Log.getLog(CsvIngestPipeline.class);
+
+  private static final Work POISON = new Work();
+
+  private final File csvFile;
+  private final MessageType schema;
+  private final ConvertOptions options;
+
+  private final MonitoredQueue<Work> free;
+  private final MonitoredQueue<Work> parse;
+  private final MonitoredQueue<Work> write;
+  private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+  private static class Work {
+    long sequence;
+    byte[] data;
+    int length;
+    ColumnBatch batch;
+  }
+
+  public CsvIngestPipeline(File csvFile, MessageType schema, ConvertOptions options) {
+    this.csvFile = csvFile;
+    this.schema = schema;
+    this.options = options;
+    int chunks = options.getPipelineDepth();
+    this.free = new MonitoredQueue<Work>("free", chunks);
+    this.parse = new MonitoredQueue<Work>("parse", chunks + options.getThreads());
+    this.write = new MonitoredQueue<Work>("write", chunks + 1);
+  }
+
+  /**
+   * @return the number of lines converted
+   */
+  public long convert(File outputParquetFile) throws IOException {
+    if(outputParquetFile.exists()) {
+      throw new IOException("Output file " + outputParquetFile.getAbsolutePath() +
+          " already exists");
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(options.getThreads() + 1);
+    try {
+      for (int i = 0; i < free.getCapacity(); i++) {
+        Work work = new Work();
+        work.data = new byte[options.getChunkSize()];
+        work.batch = new ColumnBatch(schema, 1024);
+        free.put(work);
+      }
+      executor.submit(new Stage() {
+        void execute() throws Exception {
+          read();
+        }
+      });
+      for (int i = 0; i < options.getThreads(); i++) {
+        executor.submit(new Stage() {
+          void execute() throws Exception {
+            parse();
+          }
+        });
+      }
+      long lines = write(outputParquetFile);
+      LOG.info("Pipeline queues: " + getQueues());
+      return lines;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while converting", e);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @return the queues between the stages, with their depth and stall times
+   */
+  public List<MonitoredQueue<?>> getQueues() {
+    return Arrays.<MonitoredQueue<?>>asList(free, parse, write);
+  }
+
+  private abstract class Stage implements Runnable {
+    abstract void execute() throws Exception;
+
+    @Override
+    public void run() {
+      try {
+        execute();
+      } catch (InterruptedException e) {
+        // the pipeline is shutting down
+      } catch (Throwable t) {
+        failure.compareAndSet(null, t);
+      }
+    }
+  }
+
+  private void read() throws IOException, InterruptedException {
+    InputStream in = ConvertUtils.openCsv(csvFile, options);
+    long sequence = 0;
+    try {
+      Work current = free.take();
+      current.length = 0;
+      while (true) {
+        if (current.length == current.data.length) {
+          int lastNewLine = lastIndexOf(current.data, current.length, (byte) '\n');
+          if (lastNewLine < 0) {
+            // a line longer than the chunk
+            current.data = Arrays.copyOf(current.data, current.data.length * 2);
+            continue;
+          }
+          Work next = free.take();
+          int tail = current.length - lastNewLine - 1;
+          if (next.data.length <= tail) {
+            next.data = new byte[Math.max(tail * 2, options.getChunkSize())];
+          }
+          System.arraycopy(current.data, lastNewLine + 1, next.data, 0, tail);
+          next.length = tail;
+          current.length = lastNewLine + 1;
+          current.sequence = sequence++;
+          parse.put(current);
+          current = next;
+        }
+        int read = in.read(current.data, current.length, current.data.length - current.length);
+        if (read < 0) {
+          break;
+        }
+        current.length += read;
+      }
+      if (current.length > 0) {
+        current.sequence = sequence++;
+        parse.put(current);
+      } else {
+        free.put(current);
+      }
+    } finally {
+      Utils.closeQuietly(in);
+    }
+    Work end = new Work();
+    end.sequence = sequence;
+    write.put(end);
+    for (int i = 0; i < options.getThreads(); i++) {
+      parse.put(POISON);
+    }
+  }
+
+  private static int lastIndexOf(byte[] data, int length, byte b) {
+    for (int i = length - 1; i >= 0; i--) {
+      if (data[i] == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void parse() throws IOException, InterruptedException {
+    CsvBatchParser parser = new CsvBatchParser(schema);
+    CsvRecord record = new CsvRecord();
+    Work work;
+    while ((work = parse.take()) != POISON) {
+      work.batch.reset();
+      CsvTokenizer tokenizer = new CsvTokenizer(work.data, 0, work.length);
+      while (tokenizer.next(record)) {
+        parser.parse(record, work.batch);
+      }
+      write.put(work);
+    }
+  }
+
+  private long write(File outputParquetFile) throws IOException, InterruptedException {
+    ColumnBatchParquetWriter writer = ColumnBatchParquetWriter.open(
+        new Path(outputParquetFile.toURI()), schema, options);
+    // parsers finish out of order, batches wait here until their turn
+    Map<Long, Work> parsed = new HashMap<Long, Work>();
+    long next = 0;
+    long lines = 0;
+    try {
+      while (true) {
+        Work work = parsed.remove(next);
+        if (work == null) {
+          work = write.poll(100, TimeUnit.MILLISECONDS);
+          if (work == null) {
+            checkFailure();
+          } else {
+            parsed.put(work.sequence, work);
+          }
+          continue;
+        }
+        if (work.batch == null) {
+          // all chunks before the end marker are written
+          break;
+        }
+        writer.writeBatch(work.batch);
+        lines += work.batch.size();
+        ++next;
+        free.put(work);
+      }
+      writer.close();
+    } finally {
+      Utils.closeQuietly(writer);
+    }
+    return lines;
+  }
+
+  private void checkFailure() throws IOException {
+    Throwable t = failure.get();
+    if (t instanceof IOException) {
+      throw (IOException) t;
+    }
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    if (t != null) {
+      throw new IOException(t);
+    }
+  }
+}
@@ -20,12 +20,11 @@ import java.util.List;
 
 import org.apache.hadoop.fs.Path;
 
-import parquet.hadoop.ParquetWriter;
 import parquet.hadoop.api.WriteSupport;
 import parquet.hadoop.metadata.CompressionCodecName;
 import parquet.schema.MessageType;
 
-public class CsvParquetWriter extends ParquetWriter<List<String>> {
+public class CsvParquetWriter extends ManagedParquetWriter<List<String>> {
 
   public CsvParquetWriter(Path file, MessageType schema) throws IOException {
     this(file, schema, false);
@@ -36,6 +35,24 @@ public class CsvParquetWriter extends ParquetWriter<List<String>> {
   }
   
   public CsvParquetWriter(Path file, MessageType schema, CompressionCodecName codecName, boolean enableDictionary) throws IOException {
-    super(file, (WriteSupport<List<String>>) new CsvWriteSupport(schema), codecName, DEFAULT_BLOCK_SIZE, DEFAULT_PAGE_SIZE, enableDictionary, false);
+    super(file, (WriteSupport<List<String>>) new CsvWriteSupport(schema), codecName, enableDictionary);
+  }
+
+  private CsvParquetWriter(Path file, MessageType schema, ConvertOptions options,
+      WriterMemoryManager.Allocation allocation) throws IOException {
+    super(file, (WriteSupport<List<String>>) new CsvWriteSupport(schema), options, allocation);
+  }
+
+  /**
+   * @return a writer whose row group size is allocated by the {@link WriterMemoryManager}
+   */
+  public static CsvParquetWriter open(final Path file, final MessageType schema, final ConvertOptions options)
+      throws IOException {
+    return WriterMemoryManager.open(file, options, new WriterMemoryManager.WriterFactory<CsvParquetWriter>() {
+      @Override
+      public CsvParquetWriter create(WriterMemoryManager.Allocation allocation) throws IOException {
+        return new CsvParquetWriter(file, schema, options, allocation);
+      }
+    });
   }
 }
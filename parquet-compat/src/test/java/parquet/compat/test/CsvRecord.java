@@ -0,0 +1,87 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * One line of a csv file as field slices of the tokenizer's buffer.
+ * The slices are only valid until the tokenizer reads the next line.
+ * The List view decodes fields to Strings on access.
+ */
+public class CsvRecord extends AbstractList<String> {
+
+  static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private byte[] buffer;
+  private int[] offsets = new int[16];
+  private int[] lengths = new int[16];
+  private int size;
+
+  void reset(byte[] buffer) {
+    this.buffer = buffer;
+    this.size = 0;
+  }
+
+  void addField(int offset, int length) {
+    if (size == offsets.length) {
+      offsets = Arrays.copyOf(offsets, size * 2);
+      lengths = Arrays.copyOf(lengths, size * 2);
+    }
+    offsets[size] = offset;
+    lengths[size] = length;
+    ++size;
+  }
+
+  void trimTrailingEmptyFields() {
+    while (size > 0 && lengths[size - 1] == 0) {
+      --size;
+    }
+  }
+
+  public byte[] getBuffer() {
+    return buffer;
+  }
+
+  public int getOffset(int field) {
+    checkIndex(field);
+    return offsets[field];
+  }
+
+  public int getLength(int field) {
+    checkIndex(field);
+    return lengths[field];
+  }
+
+  @Override
+  public String get(int field) {
+    checkIndex(field);
+    return new String(buffer, offsets[field], lengths[field], UTF8);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  private void checkIndex(int field) {
+    if (field < 0 || field >= size) {
+      throw new IndexOutOfBoundsException("field " + field + " of " + size);
+    }
+  }
+}
@@ -0,0 +1,263 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+
+import parquet.column.ColumnDescriptor;
+import parquet.hadoop.api.WriteSupport;
+import parquet.io.ParquetEncodingException;
+import parquet.io.api.Binary;
+import parquet.io.api.RecordConsumer;
+import parquet.schema.MessageType;
+
+/**
+ * Writes {@link CsvRecord}s, parsing each field directly from its bytes.
+ * The value writer of every column is picked once from the schema.
+ * One record out of {@link #SAMPLE_INTERVAL} is timed into the csv.parse
+ * and parquet.encode {@link Metrics}, the time spent in the record consumer
+ * being the encoding.
+ */
+public class CsvRecordWriteSupport extends WriteSupport<CsvRecord> {
+  static final int SAMPLE_INTERVAL = 64;
+
+  MessageType schema;
+  RecordConsumer recordConsumer;
+  TimingRecordConsumer timingRecordConsumer;
+  long records;
+  final Metrics.Timer parseTimer = Metrics.getDefault().timer("csv.parse");
+  final Metrics.Timer encodeTimer = Metrics.getDefault().timer("parquet.encode");
+  List<ColumnDescriptor> cols;
+  String[] fieldNames;
+  FieldWriter[] fieldWriters;
+
+  /**
+   * @param schema a flat schema of primitive columns
+   * @param copyBinary whether binary values must be copied out of the record's buffer.
+   * Dictionary encoding keeps the Binary values it has seen, so they can't point
+   * to a buffer the tokenizer reuses.
+   */
+  public CsvRecordWriteSupport(MessageType schema, boolean copyBinary) {
+    this.schema = schema;
+    this.cols = schema.getColumns();
+    this.fieldNames = new String[cols.size()];
+    this.fieldWriters = new FieldWriter[cols.size()];
+    for (int i = 0; i < cols.size(); ++i) {
+      fieldNames[i] = cols.get(i).getPath()[0];
+      fieldWriters[i] = fieldWriter(cols.get(i), copyBinary);
+    }
+  }
+
+  @Override
+  public WriteContext init(Configuration config) {
+    return new WriteContext(schema, new HashMap<String, String>());
+  }
+
+  @Override
+  public void prepareForWrite(RecordConsumer r) {
+    recordConsumer = r;
+    timingRecordConsumer = new TimingRecordConsumer(r);
+  }
+
+  @Override
+  public void write(CsvRecord record) {
+    if (++records % SAMPLE_INTERVAL != 0) {
+      write(record, recordConsumer);
+      return;
+    }
+    timingRecordConsumer.nanos = 0;
+    long start = System.nanoTime();
+    write(record, timingRecordConsumer);
+    long elapsed = System.nanoTime() - start;
+    encodeTimer.update(timingRecordConsumer.nanos, 1);
+    parseTimer.update(elapsed - timingRecordConsumer.nanos, 1);
+  }
+
+  private void write(CsvRecord record, RecordConsumer consumer) {
+    if (record.size() != cols.size()) {
+      throw new ParquetEncodingException("Invalid input data. Expecting " +
+          cols.size() + " columns. Input had " + record.size() + " columns (" + cols + ") : " + record);
+    }
+
+    byte[] buffer = record.getBuffer();
+    consumer.startMessage();
+    for (int i = 0; i < fieldWriters.length; ++i) {
+      int length = record.getLength(i);
+      // length == 0 indicates a NULL value.
+      if (length > 0) {
+        consumer.startField(fieldNames[i], i);
+        fieldWriters[i].write(consumer, buffer, record.getOffset(i), length);
+        consumer.endField(fieldNames[i], i);
+      }
+    }
+    consumer.endMessage();
+  }
+
+  /**
+   * Adds up the time spent in the calls to the wrapped record consumer.
+   */
+  static class TimingRecordConsumer extends RecordConsumer {
+    private final RecordConsumer delegate;
+    long nanos;
+
+    TimingRecordConsumer(RecordConsumer delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void startMessage() {
+      long start = System.nanoTime();
+      delegate.startMessage();
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void endMessage() {
+      long start = System.nanoTime();
+      delegate.endMessage();
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void startField(String field, int index) {
+      long start = System.nanoTime();
+      delegate.startField(field, index);
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void endField(String field, int index) {
+      long start = System.nanoTime();
+      delegate.endField(field, index);
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void startGroup() {
+      long start = System.nanoTime();
+      delegate.startGroup();
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void endGroup() {
+      long start = System.nanoTime();
+      delegate.endGroup();
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void addInteger(int value) {
+      long start = System.nanoTime();
+      delegate.addInteger(value);
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void addLong(long value) {
+      long start = System.nanoTime();
+      delegate.addLong(value);
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void addBoolean(boolean value) {
+      long start = System.nanoTime();
+      delegate.addBoolean(value);
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void addBinary(Binary value) {
+      long start = System.nanoTime();
+      delegate.addBinary(value);
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void addFloat(float value) {
+      long start = System.nanoTime();
+      delegate.addFloat(value);
+      nanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void addDouble(double value) {
+      long start = System.nanoTime();
+      delegate.addDouble(value);
+      nanos += System.nanoTime() - start;
+    }
+  }
+
+  static abstract class FieldWriter {
+    abstract void write(RecordConsumer recordConsumer, byte[] bytes, int offset, int length);
+  }
+
+  private static FieldWriter fieldWriter(ColumnDescriptor column, final boolean copyBinary) {
+    switch (column.getType()) {
+    case BOOLEAN:
+      return new FieldWriter() {
+        void write(RecordConsumer recordConsumer, byte[] bytes, int offset, int length) {
+          recordConsumer.addBoolean(ByteUtils.parseBoolean(bytes, offset, length));
+        }
+      };
+    case FLOAT:
+      return new FieldWriter() {
+        void write(RecordConsumer recordConsumer, byte[] bytes, int offset, int length) {
+          recordConsumer.addFloat(ByteUtils.parseFloat(bytes, offset, length));
+        }
+      };
+    case DOUBLE:
+      return new FieldWriter() {
+        void write(RecordConsumer recordConsumer, byte[] bytes, int offset, int length) {
+          recordConsumer.addDouble(ByteUtils.parseDouble(bytes, offset, length));
+        }
+      };
+    case INT32:
+      return new FieldWriter() {
+        void write(RecordConsumer recordConsumer, byte[] bytes, int offset, int length) {
+          recordConsumer.addInteger(ByteUtils.parseInt(bytes, offset, length));
+        }
+      };
+    case INT64:
+      return new FieldWriter() {
+        void write(RecordConsumer recordConsumer, byte[] bytes, int offset, int length) {
+          recordConsumer.addLong(ByteUtils.parseLong(bytes, offset, length));
+        }
+      };
+    case BINARY:
+      if (copyBinary) {
+        return new FieldWriter() {
+          void write(RecordConsumer recordConsumer, byte[] bytes, int offset, int length) {
+            recordConsumer.addBinary(Binary.fromByteArray(Arrays.copyOfRange(bytes, offset, offset + length)));
+          }
+        };
+      }
+      return new FieldWriter() {
+        void write(RecordConsumer recordConsumer, byte[] bytes, int offset, int length) {
+          recordConsumer.addBinary(Binary.fromByteArray(bytes, offset, length));
+        }
+      };
+    default:
+      throw new ParquetEncodingException(
+          "Unsupported column type: " + column.getType());
+    }
+  }
+}
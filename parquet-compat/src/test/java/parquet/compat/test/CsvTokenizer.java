@@ -0,0 +1,177 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Splits a csv stream into lines and fields without creating Strings.
+ * Lines are read into a reusable buffer that only grows when a single line
+ * doesn't fit. Lines end with \n or \r\n, fields are separated by
+ * {@link ConvertUtils#CSV_DELIMITER} and, like String.split, trailing empty
+ * fields are dropped.
+ */
+public class CsvTokenizer implements Closeable {
+
+  static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+  private static final byte DELIMITER = (byte) ConvertUtils.CSV_DELIMITER.charAt(0);
+
+  private final InputStream in;
+  private long remaining;
+  private boolean eof;
+
+  private byte[] buffer;
+  private int start;
+  private int scanned;
+  private int end;
+
+  private int lineStart;
+  private int lineLength;
+
+  public CsvTokenizer(InputStream in) {
+    this(in, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param in the stream to tokenize
+   * @param length number of bytes to read from in
+   */
+  public CsvTokenizer(InputStream in, long length) {
+    this(in, length, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Tokenizes lines already in memory, the record slices point into bytes.
+   */
+  public CsvTokenizer(byte[] bytes, int offset, int length) {
+    this.in = null;
+    this.eof = true;
+    this.buffer = bytes;
+    this.start = this.scanned = offset;
+    this.end = offset + length;
+  }
+
+  CsvTokenizer(InputStream in, long length, int bufferSize) {
+    this.in = in;
+    this.remaining = length;
+    this.buffer = new byte[bufferSize];
+  }
+
+  /**
+   * Moves to the next line, available through {@link #getBuffer()},
+   * {@link #getLineStart()} and {@link #getLineLength()}.
+   * @return false at the end of the input
+   */
+  public boolean nextLine() throws IOException {
+    while (true) {
+      for (int i = scanned; i < end; i++) {
+        if (buffer[i] == '\n') {
+          setLine(start, i);
+          start = scanned = i + 1;
+          return true;
+        }
+      }
+      scanned = end;
+      if (eof) {
+        if (start < end) {
+          setLine(start, end);
+          start = scanned = end;
+          return true;
+        }
+        return false;
+      }
+      fill();
+    }
+  }
+
+  /**
+   * Moves to the next line and splits it into the fields of record.
+   * @return false at the end of the input
+   */
+  public boolean next(CsvRecord record) throws IOException {
+    if (!nextLine()) {
+      return false;
+    }
+    record.reset(buffer);
+    int lineEnd = lineStart + lineLength;
+    int fieldStart = lineStart;
+    for (int i = lineStart; i < lineEnd; i++) {
+      if (buffer[i] == DELIMITER) {
+        record.addField(fieldStart, i - fieldStart);
+        fieldStart = i + 1;
+      }
+    }
+    if (fieldStart == lineStart) {
+      // no delimiter, the whole line is the only field even when empty
+      record.addField(lineStart, lineLength);
+    } else {
+      record.addField(fieldStart, lineEnd - fieldStart);
+      record.trimTrailingEmptyFields();
+    }
+    return true;
+  }
+
+  public byte[] getBuffer() {
+    return buffer;
+  }
+
+  public int getLineStart() {
+    return lineStart;
+  }
+
+  public int getLineLength() {
+    return lineLength;
+  }
+
+  private void setLine(int from, int to) {
+    lineStart = from;
+    lineLength = to - from;
+    if (lineLength > 0 && buffer[to - 1] == '\r') {
+      --lineLength;
+    }
+  }
+
+  private void fill() throws IOException {
+    if (start > 0) {
+      System.arraycopy(buffer, start, buffer, 0, end - start);
+      end -= start;
+      scanned -= start;
+      start = 0;
+    }
+    if (end == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    int toRead = (int) Math.min(buffer.length - end, remaining);
+    int read = toRead == 0 ? -1 : in.read(buffer, end, toRead);
+    if (read < 0) {
+      eof = true;
+    } else {
+      end += read;
+      remaining -= read;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (in != null) {
+      in.close();
+    }
+  }
+}
@@ -32,7 +32,7 @@ public class CsvWriteSupport extends WriteSupport<List<String>> {
   RecordConsumer recordConsumer;
   List<ColumnDescriptor> cols;
 
-  // TODO: support specifying encodings and compression
+  // the codec, page and row group sizes and dictionary are set on CsvParquetWriter
   public CsvWriteSupport(MessageType schema) {
     this.schema = schema;
     this.cols = schema.getColumns();
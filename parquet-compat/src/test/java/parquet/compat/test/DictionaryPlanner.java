@@ -0,0 +1,240 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import parquet.column.ColumnDescriptor;
+import parquet.schema.MessageType;
+import parquet.schema.PrimitiveType.PrimitiveTypeName;
+
+/**
+ * Decides whether a file is written with a dictionary from the first rows of
+ * its csv, estimating the cardinality of each column with a {@link HyperLogLog}.
+ * The writers of this version of parquet enable the dictionary for all the
+ * binary columns of a file at once, and a column falls back to plain encoding
+ * once its dictionary reaches the page size. So the decision is per file: the
+ * columns whose sampled dictionary fits in a page and makes them smaller keep
+ * it, and the file gets a dictionary when they save at least a minimum
+ * fraction of the plain encoded bytes of all the binary columns.
+ */
+public class DictionaryPlanner {
+
+  private static final int PRECISION = 12;
+
+  private final List<ColumnDescriptor> columns;
+  private final HyperLogLog[] sketches;
+  private final long[] values;
+  private final long[] bytes;
+  private final int sampleRows;
+  private final int pageSize;
+  private final double minSavings;
+  private long rows;
+  private List<ColumnPlan> plan;
+
+  /**
+   * The estimated cardinality and sizes of a column and its encoding.
+   */
+  public static class ColumnPlan {
+    final String column;
+    final PrimitiveTypeName type;
+    final long values;
+    final long distinct;
+    final double averageBytes;
+    boolean dictionary;
+
+    ColumnPlan(String column, PrimitiveTypeName type, long values, long distinct, double averageBytes) {
+      this.column = column;
+      this.type = type;
+      this.values = values;
+      this.distinct = distinct;
+      this.averageBytes = averageBytes;
+    }
+
+    public String getColumn() {
+      return column;
+    }
+
+    public boolean isDictionary() {
+      return dictionary;
+    }
+
+    /**
+     * @return the plain encoded size of the distinct values
+     */
+    public long getDictionaryBytes() {
+      return Math.round(distinct * (averageBytes + 4));
+    }
+
+    public long getPlainBytes() {
+      return Math.round(values * (averageBytes + 4));
+    }
+
+    /**
+     * @return the size of the dictionary and of the bit packed ids of the values
+     */
+    public long getDictionaryEncodedBytes() {
+      int bitWidth = 64 - Long.numberOfLeadingZeros(Math.max(distinct - 1, 1));
+      return getDictionaryBytes() + (values * bitWidth + 7) / 8;
+    }
+
+    @Override
+    public String toString() {
+      return column + "=" + (dictionary ? "dict" : "plain") + "(" + distinct + "/" + values + ")";
+    }
+  }
+
+  /**
+   * @return the plan of the first options.getDictionarySampleRows() rows of csvFile
+   */
+  public static DictionaryPlanner sample(File csvFile, MessageType schema, ConvertOptions options)
+      throws IOException {
+    DictionaryPlanner planner = new DictionaryPlanner(schema, options.getDictionarySampleRows(),
+        options.getPageSize(), options.getDictionaryMinSavings());
+    CsvTokenizer tokenizer = new CsvTokenizer(ConvertUtils.openCsv(csvFile, options));
+    CsvRecord record = new CsvRecord();
+    try {
+      while (!planner.isFull() && tokenizer.next(record)) {
+        planner.add(record);
+      }
+    } finally {
+      Utils.closeQuietly(tokenizer);
+    }
+    return planner;
+  }
+
+  /**
+   * @param sampleRows number of rows sampled
+   * @param pageSize the page size of the file, the largest dictionary of a column
+   * @param minSavings the smallest fraction of the plain encoded bytes of the binary columns
+   * a dictionary must save
+   */
+  public DictionaryPlanner(MessageType schema, int sampleRows, int pageSize, double minSavings) {
+    this.columns = schema.getColumns();
+    this.sketches = new HyperLogLog[columns.size()];
+    this.values = new long[columns.size()];
+    this.bytes = new long[columns.size()];
+    for (int i = 0; i < sketches.length; ++i) {
+      sketches[i] = new HyperLogLog(PRECISION);
+    }
+    this.sampleRows = sampleRows;
+    this.pageSize = pageSize;
+    this.minSavings = minSavings;
+  }
+
+  public boolean isFull() {
+    return rows >= sampleRows;
+  }
+
+  public void add(CsvRecord record) {
+    byte[] buffer = record.getBuffer();
+    int fields = Math.min(record.size(), columns.size());
+    for (int i = 0; i < fields; ++i) {
+      int length = record.getLength(i);
+      // length == 0 indicates a NULL value.
+      if (length > 0) {
+        sketches[i].add(buffer, record.getOffset(i), length);
+        ++values[i];
+        bytes[i] += length;
+      }
+    }
+    ++rows;
+    plan = null;
+  }
+
+  public long getRows() {
+    return rows;
+  }
+
+  /**
+   * @return the estimates of every column, in schema order, the binary columns
+   * that would keep their dictionary being marked as dictionary encoded
+   */
+  public List<ColumnPlan> getPlan() {
+    if (plan != null) {
+      return plan;
+    }
+    List<ColumnPlan> columnPlans = new ArrayList<ColumnPlan>();
+    for (int i = 0; i < columns.size(); ++i) {
+      ColumnDescriptor column = columns.get(i);
+      ColumnPlan columnPlan = new ColumnPlan(column.getPath()[0], column.getType(), values[i],
+          Math.min(sketches[i].estimate(), values[i]), values[i] == 0 ? 0 : (double) bytes[i] / values[i]);
+      columnPlan.dictionary = columnPlan.type == PrimitiveTypeName.BINARY
+          && columnPlan.values > 0
+          && columnPlan.getDictionaryBytes() <= pageSize
+          && columnPlan.getDictionaryEncodedBytes() < columnPlan.getPlainBytes();
+      columnPlans.add(columnPlan);
+    }
+    plan = columnPlans;
+    return plan;
+  }
+
+  /**
+   * @return the sampled bytes saved by the columns that would keep their dictionary
+   */
+  public long getSavedBytes() {
+    long saved = 0;
+    for (ColumnPlan columnPlan : getPlan()) {
+      if (columnPlan.dictionary) {
+        saved += columnPlan.getPlainBytes() - columnPlan.getDictionaryEncodedBytes();
+      }
+    }
+    return saved;
+  }
+
+  /**
+   * @return the sampled plain encoded bytes of the binary columns, the ones a dictionary applies to
+   */
+  public long getBinaryPlainBytes() {
+    long plainBytes = 0;
+    for (ColumnPlan columnPlan : getPlan()) {
+      if (columnPlan.type == PrimitiveTypeName.BINARY) {
+        plainBytes += columnPlan.getPlainBytes();
+      }
+    }
+    return plainBytes;
+  }
+
+  /**
+   * @return whether the file should be written with a dictionary
+   */
+  public boolean isEnableDictionary() {
+    long saved = getSavedBytes();
+    return saved > 0 && saved >= minSavings * getBinaryPlainBytes();
+  }
+
+  /**
+   * @return the names of the columns that would keep their dictionary
+   */
+  public List<String> getDictionaryColumns() {
+    List<String> dictionaryColumns = new ArrayList<String>();
+    for (ColumnPlan columnPlan : getPlan()) {
+      if (columnPlan.dictionary) {
+        dictionaryColumns.add(columnPlan.column);
+      }
+    }
+    return dictionaryColumns;
+  }
+
+  @Override
+  public String toString() {
+    return rows + " rows sampled, dictionary " + (isEnableDictionary() ? "enabled" : "disabled")
+        + " saving " + getSavedBytes() + " of " + getBinaryPlainBytes() + " bytes: " + getPlan();
+  }
+}
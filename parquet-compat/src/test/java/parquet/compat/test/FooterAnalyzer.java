@@ -0,0 +1,268 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+import parquet.hadoop.metadata.BlockMetaData;
+import parquet.hadoop.metadata.ColumnChunkMetaData;
+import parquet.hadoop.metadata.ParquetMetadata;
+
+/**
+ * Reports the codec, encodings, value count and sizes of every column chunk
+ * of parquet files from their footers, and the differences per file and
+ * column between the reports of two parquet versions.
+ * The footers of this version don't count dictionary encoded pages, so the
+ * dictionary hit ratio of a column is the fraction of its values in chunks
+ * encoded with a dictionary only, a chunk that fell back to plain encoding
+ * lists both encodings.
+ */
+public class FooterAnalyzer {
+
+  private static final String DELIMITER = "|";
+
+  private static final String[] COLUMNS = {
+    "file", "row_group", "column", "codec", "encodings", "values", "compressed_bytes", "uncompressed_bytes"
+  };
+
+  public static File getReportFile() {
+    return new File("target/test/footers.csv");
+  }
+
+  public static File getReportFile(String version) {
+    return new File("../" + version + "/target/test/footers.csv");
+  }
+
+  /**
+   * One column chunk of one row group.
+   */
+  public static class ChunkStats {
+    final String file;
+    final int rowGroup;
+    final String column;
+    final String codec;
+    final String encodings;
+    final long values;
+    final long compressedBytes;
+    final long uncompressedBytes;
+
+    public ChunkStats(String file, int rowGroup, String column, String codec, String encodings,
+        long values, long compressedBytes, long uncompressedBytes) {
+      this.file = file;
+      this.rowGroup = rowGroup;
+      this.column = column;
+      this.codec = codec;
+      this.encodings = encodings;
+      this.values = values;
+      this.compressedBytes = compressedBytes;
+      this.uncompressedBytes = uncompressedBytes;
+    }
+
+    boolean isDictionaryOnly() {
+      return encodings.contains("DICTIONARY") && !Arrays.asList(encodings.split(" ")).contains("PLAIN");
+    }
+  }
+
+  /**
+   * The chunks of a column of a file added up.
+   */
+  public static class ColumnSummary {
+    long values;
+    long dictionaryValues;
+    long compressedBytes;
+    long uncompressedBytes;
+    final TreeSet<String> encodings = new TreeSet<String>();
+    final TreeSet<String> codecs = new TreeSet<String>();
+
+    void add(ChunkStats chunk) {
+      values += chunk.values;
+      dictionaryValues += chunk.isDictionaryOnly() ? chunk.values : 0;
+      compressedBytes += chunk.compressedBytes;
+      uncompressedBytes += chunk.uncompressedBytes;
+      encodings.addAll(Arrays.asList(chunk.encodings.split(" ")));
+      codecs.add(chunk.codec);
+    }
+
+    public double getDictionaryRatio() {
+      return values == 0 ? 0 : (double) dictionaryValues / values;
+    }
+
+    @Override
+    public String toString() {
+      return values + " values, " + compressedBytes + " bytes (" + uncompressedBytes + " uncompressed), "
+          + codecs + " " + encodings + ", dictionary ratio " + String.format("%.2f", getDictionaryRatio());
+    }
+  }
+
+  /**
+   * @param name the name of the file in the report
+   * @param parquetFile a parquet file, or a directory of part files
+   */
+  public static List<ChunkStats> analyze(String name, File parquetFile) throws IOException {
+    List<ChunkStats> chunks = new ArrayList<ChunkStats>();
+    Configuration configuration = new Configuration();
+    File[] files = ConvertUtils.getParquetFiles(parquetFile);
+    for (File file : files) {
+      String fileName = files.length == 1 && file.equals(parquetFile) ? name : name + "/" + file.getName();
+      ParquetMetadata footer = FooterCache.getDefault().readFooter(configuration, new Path(file.toURI()));
+      int rowGroup = 0;
+      for (BlockMetaData block : footer.getBlocks()) {
+        for (ColumnChunkMetaData chunk : block.getColumns()) {
+          TreeSet<String> encodings = new TreeSet<String>();
+          for (Object encoding : chunk.getEncodings()) {
+            encodings.add(encoding.toString());
+          }
+          chunks.add(new ChunkStats(fileName, rowGroup, join(chunk.getPath().toArray(), "."),
+              String.valueOf(chunk.getCodec()), join(encodings.toArray(new String[encodings.size()]), " "), chunk.getValueCount(),
+              chunk.getTotalSize(), chunk.getTotalUncompressedSize()));
+        }
+        ++rowGroup;
+      }
+    }
+    return chunks;
+  }
+
+  /**
+   * Analyzes the parquet files and directories under dir, named by their path relative to it.
+   */
+  public static List<ChunkStats> analyzeAll(File dir, String prefix) throws IOException {
+    List<ChunkStats> chunks = new ArrayList<ChunkStats>();
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return chunks;
+    }
+    Arrays.sort(files);
+    for (File file : files) {
+      String name = prefix + file.getName();
+      if (file.getName().endsWith(".parquet")) {
+        chunks.addAll(analyze(name, file));
+      } else if (file.isDirectory()) {
+        chunks.addAll(analyzeAll(file, name + "/"));
+      }
+    }
+    return chunks;
+  }
+
+  private static String join(String[] parts, String separator) {
+    StringBuilder sb = new StringBuilder();
+    for (String part : parts) {
+      sb.append(sb.length() == 0 ? "" : separator).append(part);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @return the chunks added up per file and column, keyed by file|column
+   */
+  public static Map<String, ColumnSummary> summarize(List<ChunkStats> chunks) {
+    Map<String, ColumnSummary> summaries = new LinkedHashMap<String, ColumnSummary>();
+    for (ChunkStats chunk : chunks) {
+      String key = chunk.file + DELIMITER + chunk.column;
+      ColumnSummary summary = summaries.get(key);
+      if (summary == null) {
+        summary = new ColumnSummary();
+        summaries.put(key, summary);
+      }
+      summary.add(chunk);
+    }
+    return summaries;
+  }
+
+  /**
+   * @param maxSizeChange the largest relative change of the compressed bytes of a column not reported
+   * @param maxDictionaryRatioChange the largest change of the dictionary ratio of a column not reported
+   * @return a description of the columns of files in both reports whose size or
+   * dictionary ratio changed by more than those, or whose codecs or encodings changed
+   */
+  public static List<String> diff(List<ChunkStats> previous, List<ChunkStats> current,
+      double maxSizeChange, double maxDictionaryRatioChange) {
+    List<String> differences = new ArrayList<String>();
+    Map<String, ColumnSummary> previousSummaries = summarize(previous);
+    for (Map.Entry<String, ColumnSummary> entry : summarize(current).entrySet()) {
+      ColumnSummary before = previousSummaries.get(entry.getKey());
+      ColumnSummary after = entry.getValue();
+      if (before == null) {
+        continue;
+      }
+      double change = before.compressedBytes == 0 ? 0
+          : (double) (after.compressedBytes - before.compressedBytes) / before.compressedBytes;
+      if (Math.abs(change) > maxSizeChange
+          || !before.codecs.equals(after.codecs)
+          || !before.encodings.equals(after.encodings)
+          || Math.abs(after.getDictionaryRatio() - before.getDictionaryRatio()) > maxDictionaryRatioChange) {
+        differences.add(entry.getKey() + ": " + before + " -> " + after
+            + String.format(" (%+.1f%% bytes)", change * 100));
+      }
+    }
+    return differences;
+  }
+
+  public static void write(File file, List<ChunkStats> chunks) throws IOException {
+    file.getParentFile().mkdirs();
+    PrintWriter writer = new PrintWriter(file);
+    try {
+      writer.println(join(COLUMNS, DELIMITER));
+      for (ChunkStats chunk : chunks) {
+        writer.println(chunk.file + DELIMITER + chunk.rowGroup + DELIMITER + chunk.column + DELIMITER
+            + chunk.codec + DELIMITER + chunk.encodings + DELIMITER + chunk.values + DELIMITER
+            + chunk.compressedBytes + DELIMITER + chunk.uncompressedBytes);
+      }
+      if (writer.checkError()) {
+        throw new IOException("Error writing " + file.getAbsolutePath());
+      }
+    } finally {
+      Utils.closeQuietly(writer);
+    }
+  }
+
+  public static List<ChunkStats> read(File file) throws IOException {
+    BufferedReader reader = new BufferedReader(new FileReader(file));
+    Pattern delimiter = Pattern.compile(Pattern.quote(DELIMITER));
+    try {
+      String header = reader.readLine();
+      if (header == null || !header.equals(join(COLUMNS, DELIMITER))) {
+        throw new IOException("Unexpected footer report header in " + file.getAbsolutePath() + ": " + header);
+      }
+      List<ChunkStats> chunks = new ArrayList<ChunkStats>();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = delimiter.split(line, -1);
+        if (fields.length != COLUMNS.length) {
+          throw new IOException("Malformed line in " + file.getAbsolutePath() + ": " + line);
+        }
+        chunks.add(new ChunkStats(fields[0], Integer.parseInt(fields[1]), fields[2], fields[3], fields[4],
+            Long.parseLong(fields[5]), Long.parseLong(fields[6]), Long.parseLong(fields[7])));
+      }
+      return chunks;
+    } finally {
+      Utils.closeQuietly(reader);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+
+import parquet.hadoop.ParquetFileReader;
+import parquet.hadoop.metadata.ParquetMetadata;
+
+/**
+ * A bounded cache of parquet footers, keyed by path, length and modification
+ * time so that a rewritten file is read again. The least recently used footers
+ * are evicted beyond maxEntries, set for the default cache by the
+ * footer.cacheSize system property. The cached footers are shared and must
+ * not be modified.
+ */
+public class FooterCache {
+
+  private static FooterCache defaultCache;
+
+  private final Map<String, ParquetMetadata> footers;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public FooterCache(final int maxEntries) {
+    this.footers = new LinkedHashMap<String, ParquetMetadata>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ParquetMetadata> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  public static synchronized FooterCache getDefault() {
+    if (defaultCache == null) {
+      defaultCache = new FooterCache(Integer.getInteger("footer.cacheSize", 1024));
+    }
+    return defaultCache;
+  }
+
+  public ParquetMetadata readFooter(Configuration configuration, Path file) throws IOException {
+    FileStatus status = file.getFileSystem(configuration).getFileStatus(file);
+    String key = status.getPath() + "|" + status.getLen() + "|" + status.getModificationTime();
+    synchronized (footers) {
+      ParquetMetadata footer = footers.get(key);
+      if (footer != null) {
+        hits.incrementAndGet();
+        return footer;
+      }
+    }
+    misses.incrementAndGet();
+    // read outside of the lock, two threads missing the same file both read it
+    ParquetMetadata footer = ParquetFileReader.readFooter(configuration, file);
+    synchronized (footers) {
+      footers.put(key, footer);
+    }
+    return footer;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public int size() {
+    synchronized (footers) {
+      return footers.size();
+    }
+  }
+
+  public void clear() {
+    synchronized (footers) {
+      footers.clear();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "footer cache: " + size() + " entries, " + hits + " hits, " + misses + " misses";
+  }
+}
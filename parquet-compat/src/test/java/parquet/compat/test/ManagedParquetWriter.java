@@ -0,0 +1,64 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.hadoop.fs.Path;
+
+import parquet.hadoop.ParquetWriter;
+import parquet.hadoop.api.WriteSupport;
+import parquet.hadoop.metadata.CompressionCodecName;
+
+/**
+ * A writer whose row group size is allocated by the {@link WriterMemoryManager}
+ * and returned to it when the writer closes. Closing it again does nothing, so it
+ * can be closed quietly in a finally block after it was closed.
+ */
+public abstract class ManagedParquetWriter<T> extends ParquetWriter<T> implements Closeable {
+
+  private final WriterMemoryManager.Allocation allocation;
+  private boolean closed;
+
+  protected ManagedParquetWriter(Path file, WriteSupport<T> writeSupport, CompressionCodecName codecName,
+      boolean enableDictionary) throws IOException {
+    super(file, writeSupport, codecName, DEFAULT_BLOCK_SIZE, DEFAULT_PAGE_SIZE, enableDictionary, false);
+    this.allocation = null;
+  }
+
+  protected ManagedParquetWriter(Path file, WriteSupport<T> writeSupport, ConvertOptions options,
+      WriterMemoryManager.Allocation allocation) throws IOException {
+    super(file, writeSupport, options.getCodec(),
+        allocation.getBlockSize(), options.getPageSize(), options.isEnableDictionary(), false);
+    this.allocation = allocation;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      super.close();
+    } finally {
+      if (allocation != null) {
+        allocation.release();
+      }
+    }
+  }
+}
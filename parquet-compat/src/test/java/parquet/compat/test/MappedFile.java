@@ -0,0 +1,166 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read only memory mapping of a file, mapped lazily in windows of at most
+ * 1GB so that files over 2GB can be mapped too. Streams over byte ranges of
+ * the file read straight from the mapping and several threads can read
+ * their own ranges of one mapping concurrently.
+ * The mapped windows are released by the garbage collector, closing only
+ * releases the file handle.
+ */
+public class MappedFile implements Closeable {
+
+  static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  private final long length;
+  private final long windowSize;
+  private final MappedByteBuffer[] windows;
+
+  public MappedFile(File file) throws IOException {
+    this(file, DEFAULT_WINDOW_SIZE);
+  }
+
+  MappedFile(File file, long windowSize) throws IOException {
+    this.file = new RandomAccessFile(file, "r");
+    this.channel = this.file.getChannel();
+    this.length = channel.size();
+    this.windowSize = windowSize;
+    this.windows = new MappedByteBuffer[(int) ((length + windowSize - 1) / windowSize)];
+  }
+
+  /**
+   * @return a stream over the whole file that closes the mapping when closed
+   */
+  public static InputStream open(File file) throws IOException {
+    final MappedFile mappedFile = new MappedFile(file);
+    return new MappedInputStream(mappedFile, 0, mappedFile.length()) {
+      @Override
+      public void close() throws IOException {
+        mappedFile.close();
+      }
+    };
+  }
+
+  public long length() {
+    return length;
+  }
+
+  /**
+   * @return a stream over the bytes from start (inclusive) to end (exclusive)
+   */
+  public InputStream openStream(long start, long end) {
+    if (start < 0 || start > end || end > length) {
+      throw new IndexOutOfBoundsException("[" + start + ", " + end + ") of " + length);
+    }
+    return new MappedInputStream(this, start, end);
+  }
+
+  // a buffer of its own positioned at position, up to the end of the window
+  private ByteBuffer getWindow(long position) throws IOException {
+    int index = (int) (position / windowSize);
+    MappedByteBuffer window;
+    synchronized (windows) {
+      window = windows[index];
+      if (window == null) {
+        long offset = index * windowSize;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, length - offset));
+        windows[index] = window;
+      }
+    }
+    ByteBuffer buffer = window.duplicate();
+    buffer.position((int) (position - index * windowSize));
+    return buffer;
+  }
+
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+
+  private static class MappedInputStream extends InputStream {
+    private final MappedFile mappedFile;
+    private final long end;
+    private long position;
+    private ByteBuffer window;
+
+    MappedInputStream(MappedFile mappedFile, long start, long end) {
+      this.mappedFile = mappedFile;
+      this.position = start;
+      this.end = end;
+    }
+
+    private boolean nextWindow() throws IOException {
+      if (window != null && window.hasRemaining()) {
+        return true;
+      }
+      if (position >= end) {
+        return false;
+      }
+      window = mappedFile.getWindow(position);
+      window.limit((int) Math.min(window.limit(), window.position() + end - position));
+      return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!nextWindow()) {
+        return -1;
+      }
+      ++position;
+      return window.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!nextWindow()) {
+        return -1;
+      }
+      int read = Math.min(len, window.remaining());
+      window.get(b, off, read);
+      position += read;
+      return read;
+    }
+
+    @Override
+    public long skip(long n) {
+      long skipped = Math.max(0, Math.min(n, end - position));
+      position += skipped;
+      window = null;
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+  }
+}
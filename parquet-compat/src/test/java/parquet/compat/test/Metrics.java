@@ -0,0 +1,273 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import parquet.hadoop.metadata.BlockMetaData;
+import parquet.hadoop.metadata.ColumnChunkMetaData;
+import parquet.hadoop.metadata.ParquetMetadata;
+
+/**
+ * Named counters, timers, histograms and values of the conversions, exported
+ * as JSON after a run so that the phases of different parquet versions can be
+ * compared. Hot loops accumulate their timings locally and report them once
+ * per batch rather than once per value.
+ */
+public class Metrics {
+
+  private static final Metrics DEFAULT = new Metrics();
+
+  private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+  private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+  private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+  private final ConcurrentMap<String, String> values = new ConcurrentHashMap<String, String>();
+
+  public static Metrics getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * @return where the metrics of a run are exported, next to the perf results
+   */
+  public static File getMetricsFile(String run) {
+    return new File("target/test/metrics." + run + ".json");
+  }
+
+  public Counter counter(String name) {
+    Counter counter = counters.get(name);
+    if (counter == null) {
+      counters.putIfAbsent(name, new Counter());
+      counter = counters.get(name);
+    }
+    return counter;
+  }
+
+  public Histogram histogram(String name) {
+    Histogram histogram = histograms.get(name);
+    if (histogram == null) {
+      histograms.putIfAbsent(name, new Histogram());
+      histogram = histograms.get(name);
+    }
+    return histogram;
+  }
+
+  public Timer timer(String name) {
+    Timer timer = timers.get(name);
+    if (timer == null) {
+      timers.putIfAbsent(name, new Timer());
+      timer = timers.get(name);
+    }
+    return timer;
+  }
+
+  public void setValue(String name, String value) {
+    values.put(name, value);
+  }
+
+  /**
+   * Counts the bytes, values and encodings of every column of a footer
+   * under prefix.column.$name.
+   */
+  public void addColumnStats(String prefix, ParquetMetadata footer) {
+    for (BlockMetaData block : footer.getBlocks()) {
+      for (ColumnChunkMetaData chunk : block.getColumns()) {
+        String column = prefix + ".column." + join(chunk.getPath().toArray());
+        counter(column + ".compressed_bytes").add(chunk.getTotalSize());
+        counter(column + ".uncompressed_bytes").add(chunk.getTotalUncompressedSize());
+        counter(column + ".values").add(chunk.getValueCount());
+        setValue(column + ".encodings", String.valueOf(chunk.getEncodings()));
+        setValue(column + ".codec", String.valueOf(chunk.getCodec()));
+      }
+    }
+  }
+
+  private static String join(String[] path) {
+    StringBuilder sb = new StringBuilder();
+    for (String element : path) {
+      sb.append(sb.length() == 0 ? "" : ".").append(element);
+    }
+    return sb.toString();
+  }
+
+  public void reset() {
+    counters.clear();
+    histograms.clear();
+    timers.clear();
+    values.clear();
+  }
+
+  public void writeJson(File file) throws IOException {
+    file.getParentFile().mkdirs();
+    PrintWriter writer = new PrintWriter(file, "UTF-8");
+    try {
+      writer.write(toJson());
+      if (writer.checkError()) {
+        throw new IOException("Error writing " + file.getAbsolutePath());
+      }
+    } finally {
+      Utils.closeQuietly(writer);
+    }
+  }
+
+  public String toJson() {
+    StringBuilder json = new StringBuilder("{\n  \"counters\": {");
+    String separator = "\n";
+    for (Map.Entry<String, Counter> entry : new TreeMap<String, Counter>(counters).entrySet()) {
+      json.append(separator).append("    ").append(quote(entry.getKey())).append(": ").append(entry.getValue().get());
+      separator = ",\n";
+    }
+    json.append("\n  },\n  \"timers\": {");
+    separator = "\n";
+    for (Map.Entry<String, Timer> entry : new TreeMap<String, Timer>(timers).entrySet()) {
+      json.append(separator).append("    ").append(quote(entry.getKey())).append(": ").append(entry.getValue().toJson());
+      separator = ",\n";
+    }
+    json.append("\n  },\n  \"histograms\": {");
+    separator = "\n";
+    for (Map.Entry<String, Histogram> entry : new TreeMap<String, Histogram>(histograms).entrySet()) {
+      json.append(separator).append("    ").append(quote(entry.getKey())).append(": ").append(entry.getValue().toJson());
+      separator = ",\n";
+    }
+    json.append("\n  },\n  \"values\": {");
+    separator = "\n";
+    for (Map.Entry<String, String> entry : new TreeMap<String, String>(values).entrySet()) {
+      json.append(separator).append("    ").append(quote(entry.getKey())).append(": ").append(quote(entry.getValue()));
+      separator = ",\n";
+    }
+    return json.append("\n  }\n}\n").toString();
+  }
+
+  static String quote(String s) {
+    StringBuilder quoted = new StringBuilder("\"");
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        quoted.append('\\').append(c);
+      } else if (c < 0x20) {
+        quoted.append(String.format("\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+  public static class Counter {
+    private final AtomicLong value = new AtomicLong();
+
+    public void add(long n) {
+      value.addAndGet(n);
+    }
+
+    public long get() {
+      return value.get();
+    }
+  }
+
+  /**
+   * Count, sum, min and max of the recorded values, and their distribution
+   * in power of two buckets from which percentiles are estimated.
+   */
+  public static class Histogram {
+    private final long[] buckets = new long[64];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public synchronized void update(long value) {
+      ++buckets[bucket(value)];
+      ++count;
+      sum += value;
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+
+    // bucket i holds the values of [2^(i-1), 2^i), bucket 0 the values under 1
+    private static int bucket(long value) {
+      return value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    public synchronized long getCount() {
+      return count;
+    }
+
+    public synchronized long getSum() {
+      return sum;
+    }
+
+    public synchronized long getMax() {
+      return count == 0 ? 0 : max;
+    }
+
+    /**
+     * @return the upper bound of the bucket of the percentile, at most twice the actual value
+     */
+    public synchronized long getPercentile(double percentile) {
+      long rank = (long) Math.ceil(percentile / 100 * count);
+      long seen = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        seen += buckets[i];
+        if (seen >= rank && seen > 0) {
+          return i == 0 ? 0 : Math.min(max, (1L << i) - 1);
+        }
+      }
+      return 0;
+    }
+
+    synchronized String toJson() {
+      return "{\"count\": " + count + ", \"sum\": " + sum + ", \"min\": " + (count == 0 ? 0 : min)
+          + ", \"max\": " + getMax() + ", \"p50\": " + getPercentile(50) + ", \"p99\": " + getPercentile(99) + "}";
+    }
+  }
+
+  /**
+   * A histogram of durations in nanoseconds, reported in milliseconds.
+   * Each recorded duration may cover many operations, such as a batch of rows.
+   */
+  public static class Timer {
+    private final Histogram nanos = new Histogram();
+    private final AtomicLong operations = new AtomicLong();
+
+    public void update(long durationNanos, long operationCount) {
+      nanos.update(durationNanos);
+      operations.addAndGet(operationCount);
+    }
+
+    public long getTotalNanos() {
+      return nanos.getSum();
+    }
+
+    public long getOperations() {
+      return operations.get();
+    }
+
+    String toJson() {
+      return "{\"samples\": " + nanos.getCount() + ", \"operations\": " + operations
+          + ", \"total_ms\": " + nanos.getSum() / 1000000.0 + ", \"max_ms\": " + nanos.getMax() / 1000000.0
+          + ", \"p50_ms\": " + nanos.getPercentile(50) / 1000000.0
+          + ", \"p99_ms\": " + nanos.getPercentile(99) / 1000000.0 + "}";
+    }
+  }
+}
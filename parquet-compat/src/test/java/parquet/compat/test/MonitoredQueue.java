@@ -0,0 +1,137 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded queue between two pipeline stages that records how long
+ * producers waited for room (backpressure) and consumers waited for items
+ * (starvation), and how deep the queue got.
+ * The depths and stalls are also recorded in the default {@link Metrics},
+ * as pipeline.$name.depth, pipeline.$name.put_stall_nanos and
+ * pipeline.$name.take_stall_nanos.
+ */
+public class MonitoredQueue<T> {
+
+  private final String name;
+  private final int capacity;
+  private final BlockingQueue<T> queue;
+
+  private final AtomicLong putStallNanos = new AtomicLong();
+  private final AtomicLong takeStallNanos = new AtomicLong();
+  private final AtomicLong puts = new AtomicLong();
+  private final AtomicLong depthSum = new AtomicLong();
+  private final AtomicInteger maxDepth = new AtomicInteger();
+
+  private final Metrics.Histogram depthMetric;
+  private final Metrics.Counter putStallMetric;
+  private final Metrics.Counter takeStallMetric;
+
+  public MonitoredQueue(String name, int capacity) {
+    this.name = name;
+    this.capacity = capacity;
+    this.queue = new ArrayBlockingQueue<T>(capacity);
+    Metrics metrics = Metrics.getDefault();
+    this.depthMetric = metrics.histogram("pipeline." + name + ".depth");
+    this.putStallMetric = metrics.counter("pipeline." + name + ".put_stall_nanos");
+    this.takeStallMetric = metrics.counter("pipeline." + name + ".take_stall_nanos");
+  }
+
+  public void put(T item) throws InterruptedException {
+    if (!queue.offer(item)) {
+      long start = System.nanoTime();
+      queue.put(item);
+      long stall = System.nanoTime() - start;
+      putStallNanos.addAndGet(stall);
+      putStallMetric.add(stall);
+    }
+    int depth = queue.size();
+    puts.incrementAndGet();
+    depthSum.addAndGet(depth);
+    depthMetric.update(depth);
+    int max;
+    while (depth > (max = maxDepth.get()) && !maxDepth.compareAndSet(max, depth)) {
+    }
+  }
+
+  public T take() throws InterruptedException {
+    T item = queue.poll();
+    if (item == null) {
+      long start = System.nanoTime();
+      item = queue.take();
+      addTakeStall(System.nanoTime() - start);
+    }
+    return item;
+  }
+
+  /**
+   * @return the next item or null if none came before the timeout
+   */
+  public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+    T item = queue.poll();
+    if (item == null) {
+      long start = System.nanoTime();
+      item = queue.poll(timeout, unit);
+      addTakeStall(System.nanoTime() - start);
+    }
+    return item;
+  }
+
+  private void addTakeStall(long stall) {
+    takeStallNanos.addAndGet(stall);
+    takeStallMetric.add(stall);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public int getMaxDepth() {
+    return maxDepth.get();
+  }
+
+  /**
+   * @return the average depth seen by producers after adding an item
+   */
+  public double getAverageDepth() {
+    long count = puts.get();
+    return count == 0 ? 0 : (double) depthSum.get() / count;
+  }
+
+  public long getPutStallMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(putStallNanos.get());
+  }
+
+  public long getTakeStallMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(takeStallNanos.get());
+  }
+
+  @Override
+  public String toString() {
+    return name + ": capacity=" + capacity + " maxDepth=" + getMaxDepth()
+        + " avgDepth=" + String.format("%.1f", getAverageDepth())
+        + " putStall=" + getPutStallMillis() + "ms takeStall=" + getTakeStallMillis() + "ms";
+  }
+}
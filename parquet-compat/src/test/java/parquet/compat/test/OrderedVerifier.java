@@ -0,0 +1,304 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks that two csv files have the same lines in the same order, comparing
+ * chunks of both files in parallel.
+ * Both files are split into line aligned ranges whose lines are counted in
+ * parallel, which gives the byte offset of any line. The ranges of the
+ * expected file are then compared to the same lines of the output file,
+ * byte by byte, and only chunks that differ are compared line by line to
+ * report the first differing line numbers.
+ * As with the line by line comparison this replaces, anything up to the
+ * first tab of an output line is ignored.
+ */
+public class OrderedVerifier {
+
+  private static final int BLOCK_SIZE = 64 * 1024;
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private final int parallelism;
+  private final int maxReported;
+
+  public OrderedVerifier() {
+    this(Runtime.getRuntime().availableProcessors(), 10);
+  }
+
+  /**
+   * @param maxReported number of differing lines listed when verification fails
+   */
+  public OrderedVerifier(int parallelism, int maxReported) {
+    this.parallelism = parallelism;
+    this.maxReported = maxReported;
+  }
+
+  public void verify(File expectedCsvFile, File outputCsvFile) throws IOException {
+    MappedFile expected = new MappedFile(expectedCsvFile);
+    MappedFile output = null;
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      output = new MappedFile(outputCsvFile);
+      LineIndex expectedIndex = new LineIndex(expectedCsvFile, expected, executor);
+      LineIndex outputIndex = new LineIndex(outputCsvFile, output, executor);
+      long commonLines = Math.min(expectedIndex.getLineCount(), outputIndex.getLineCount());
+
+      List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+      for (int i = 0; i < expectedIndex.getRangeCount(); i++) {
+        long firstLine = expectedIndex.getFirstLine(i);
+        long lastLine = Math.min(expectedIndex.getFirstLine(i + 1), commonLines);
+        if (firstLine < lastLine) {
+          results.add(executor.submit(new ChunkComparison(expectedIndex, outputIndex, firstLine, lastLine)));
+        }
+      }
+      List<String> mismatches = new ArrayList<String>();
+      for (Future<List<String>> result : results) {
+        for (String mismatch : get(result)) {
+          if (mismatches.size() < maxReported) {
+            mismatches.add(mismatch);
+          }
+        }
+      }
+
+      if (!mismatches.isEmpty() || expectedIndex.getLineCount() != outputIndex.getLineCount()) {
+        StringBuilder message = new StringBuilder();
+        message.append(outputCsvFile.getName()).append(" differs from ").append(expectedCsvFile.getName());
+        if (expectedIndex.getLineCount() != outputIndex.getLineCount()) {
+          message.append(", expected ").append(expectedIndex.getLineCount())
+              .append(" lines but was ").append(outputIndex.getLineCount());
+        }
+        for (String mismatch : mismatches) {
+          message.append('\n').append(mismatch);
+        }
+        fail(message.toString());
+      }
+    } finally {
+      executor.shutdownNow();
+      Utils.closeQuietly(expected);
+      Utils.closeQuietly(output);
+    }
+  }
+
+  /**
+   * Line aligned ranges of a file with the number of their first line.
+   */
+  private class LineIndex {
+    private final MappedFile file;
+    private final long[] offsets;
+    private final long[] firstLines;
+
+    LineIndex(File csvFile, MappedFile file, ExecutorService executor) throws IOException {
+      this.file = file;
+      this.offsets = ParallelCsvConverter.split(csvFile, parallelism * CHUNKS_PER_THREAD);
+      int ranges = offsets.length - 1;
+      List<Future<Long>> counts = new ArrayList<Future<Long>>();
+      for (int i = 0; i < ranges; i++) {
+        final long start = offsets[i];
+        final long end = offsets[i + 1];
+        counts.add(executor.submit(new Callable<Long>() {
+          @Override
+          public Long call() throws IOException {
+            return countLines(start, end);
+          }
+        }));
+      }
+      this.firstLines = new long[ranges + 1];
+      for (int i = 0; i < ranges; i++) {
+        firstLines[i + 1] = firstLines[i] + get(counts.get(i));
+      }
+    }
+
+    // only the last range may end without a new line
+    private long countLines(long start, long end) throws IOException {
+      InputStream in = file.openStream(start, end);
+      byte[] block = new byte[BLOCK_SIZE];
+      long lines = 0;
+      byte last = '\n';
+      int read;
+      while ((read = in.read(block)) > 0) {
+        for (int i = 0; i < read; i++) {
+          if (block[i] == '\n') {
+            ++lines;
+          }
+        }
+        last = block[read - 1];
+      }
+      return last == '\n' ? lines : lines + 1;
+    }
+
+    int getRangeCount() {
+      return offsets.length - 1;
+    }
+
+    long getFirstLine(int range) {
+      return firstLines[range];
+    }
+
+    long getLineCount() {
+      return firstLines[firstLines.length - 1];
+    }
+
+    MappedFile getFile() {
+      return file;
+    }
+
+    /**
+     * @return the offset of the start of the line, or the file length for the line after the last one
+     */
+    long getOffset(long line) throws IOException {
+      if (line >= getLineCount()) {
+        return file.length();
+      }
+      int range = 0;
+      while (firstLines[range + 1] <= line) {
+        ++range;
+      }
+      long toSkip = line - firstLines[range];
+      long position = offsets[range];
+      InputStream in = file.openStream(position, offsets[range + 1]);
+      byte[] block = new byte[BLOCK_SIZE];
+      while (toSkip > 0) {
+        int read = in.read(block);
+        if (read < 0) {
+          break;
+        }
+        for (int i = 0; i < read; i++) {
+          if (block[i] == '\n' && --toSkip == 0) {
+            return position + i + 1;
+          }
+        }
+        position += read;
+      }
+      return position;
+    }
+  }
+
+  private class ChunkComparison implements Callable<List<String>> {
+    private final LineIndex expected;
+    private final LineIndex output;
+    private final long firstLine;
+    private final long lastLine;
+
+    ChunkComparison(LineIndex expected, LineIndex output, long firstLine, long lastLine) {
+      this.expected = expected;
+      this.output = output;
+      this.firstLine = firstLine;
+      this.lastLine = lastLine;
+    }
+
+    @Override
+    public List<String> call() throws IOException {
+      long expectedStart = expected.getOffset(firstLine);
+      long expectedEnd = expected.getOffset(lastLine);
+      long outputStart = output.getOffset(firstLine);
+      long outputEnd = output.getOffset(lastLine);
+      if (expectedEnd - expectedStart == outputEnd - outputStart
+          && sameBytes(expected.getFile().openStream(expectedStart, expectedEnd),
+              output.getFile().openStream(outputStart, outputEnd))) {
+        return new ArrayList<String>();
+      }
+      return compareLines(expected.getFile().openStream(expectedStart, expectedEnd),
+          output.getFile().openStream(outputStart, outputEnd));
+    }
+
+    // equal bytes without any tab, which would have to be stripped from the output
+    private boolean sameBytes(InputStream expectedIn, InputStream outputIn) throws IOException {
+      byte[] expectedBlock = new byte[BLOCK_SIZE];
+      byte[] outputBlock = new byte[BLOCK_SIZE];
+      int read;
+      while ((read = readFully(expectedIn, expectedBlock)) > 0) {
+        if (readFully(outputIn, outputBlock) != read) {
+          return false;
+        }
+        for (int i = 0; i < read; i++) {
+          if (expectedBlock[i] != outputBlock[i] || expectedBlock[i] == '\t') {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private List<String> compareLines(InputStream expectedIn, InputStream outputIn) throws IOException {
+      List<String> mismatches = new ArrayList<String>();
+      CsvTokenizer expectedLines = new CsvTokenizer(expectedIn);
+      CsvTokenizer outputLines = new CsvTokenizer(outputIn);
+      long lineNumber = firstLine;
+      while (mismatches.size() < maxReported && expectedLines.nextLine() && outputLines.nextLine()) {
+        ++lineNumber;
+        byte[] outputBuffer = outputLines.getBuffer();
+        int outputStart = outputLines.getLineStart();
+        int outputEnd = outputStart + outputLines.getLineLength();
+        for (int i = outputStart; i < outputEnd; i++) {
+          if (outputBuffer[i] == '\t') {
+            outputStart = i + 1;
+            break;
+          }
+        }
+        String expectedLine = new String(expectedLines.getBuffer(), expectedLines.getLineStart(),
+            expectedLines.getLineLength(), CsvRecord.UTF8);
+        String outputLine = new String(outputBuffer, outputStart, outputEnd - outputStart, CsvRecord.UTF8);
+        if (!expectedLine.equals(outputLine)) {
+          mismatches.add("line " + lineNumber + " expected:<" + expectedLine + "> but was:<" + outputLine + ">");
+        }
+      }
+      return mismatches;
+    }
+  }
+
+  private static int readFully(InputStream in, byte[] block) throws IOException {
+    int length = 0;
+    int read;
+    while (length < block.length && (read = in.read(block, length, block.length - length)) > 0) {
+      length += read;
+    }
+    return length;
+  }
+
+  private static <T> T get(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while verifying", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+}
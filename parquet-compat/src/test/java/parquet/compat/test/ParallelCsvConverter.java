@@ -0,0 +1,226 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+import parquet.Log;
+import parquet.hadoop.Footer;
+import parquet.hadoop.ParquetFileReader;
+import parquet.hadoop.ParquetFileWriter;
+import parquet.schema.MessageType;
+
+/**
+ * Converts a csv file into a directory of parquet part files.
+ * The csv is split into line aligned byte ranges, each converted by its own
+ * worker into part-$index.parquet, so reading the parts in name order
+ * gives back the lines in their original order.
+ * With memory mapping the workers read their ranges from one shared mapping.
+ */
+public class ParallelCsvConverter {
+
+  private static final Log LOG = Log.getLog(ParallelCsvConverter.class);
+
+  private final File csvFile;
+  private final MessageType schema;
+  private final ConvertOptions options;
+
+  public ParallelCsvConverter(File csvFile, MessageType schema, ConvertOptions options) {
+    this.csvFile = csvFile;
+    this.schema = schema;
+    this.options = options;
+  }
+
+  /**
+   * @return the number of lines converted
+   */
+  public long convert(File outputDir) throws IOException {
+    if (outputDir.exists()) {
+      throw new IOException("Output directory " + outputDir.getAbsolutePath() + " already exists");
+    }
+    if (!outputDir.mkdirs()) {
+      throw new IOException("Could not create " + outputDir.getAbsolutePath());
+    }
+    long[] offsets = split(csvFile, options.getThreads());
+    int parts = offsets.length - 1;
+    LOG.info("Converting " + csvFile.getName() + " in " + parts + " parts with " + options);
+
+    MappedFile mappedFile = options.isMemoryMapped() ? new MappedFile(csvFile) : null;
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parts, options.getThreads())));
+    List<Future<Long>> results = new ArrayList<Future<Long>>();
+    List<Path> partFiles = new ArrayList<Path>();
+    try {
+      for (int i = 0; i < parts; i++) {
+        Path partFile = new Path(new File(outputDir, getPartFileName(i)).toURI());
+        partFiles.add(partFile);
+        results.add(executor.submit(new PartConverter(mappedFile, offsets[i], offsets[i + 1], partFile)));
+      }
+      long lines = 0;
+      for (Future<Long> result : results) {
+        lines += get(result);
+      }
+      if (options.isWriteSummary()) {
+        writeSummary(new Path(outputDir.toURI()), partFiles);
+      }
+      return lines;
+    } finally {
+      executor.shutdownNow();
+      Utils.closeQuietly(mappedFile);
+    }
+  }
+
+  public static String getPartFileName(int index) {
+    return String.format("part-%05d.parquet", index);
+  }
+
+  /**
+   * @return the start of each range followed by the file length,
+   * every start but the first being the beginning of a line
+   */
+  static long[] split(File file, int parts) throws IOException {
+    long length = file.length();
+    List<Long> starts = new ArrayList<Long>();
+    starts.add(0L);
+    RandomAccessFile in = new RandomAccessFile(file, "r");
+    try {
+      byte[] buffer = new byte[8192];
+      for (int i = 1; i < parts; i++) {
+        long position = Math.max(length * i / parts, starts.get(starts.size() - 1) + 1);
+        long start = nextLineStart(in, buffer, position, length);
+        if (start >= length) {
+          break;
+        }
+        if (start > starts.get(starts.size() - 1)) {
+          starts.add(start);
+        }
+      }
+    } finally {
+      Utils.closeQuietly(in);
+    }
+    long[] offsets = new long[starts.size() + 1];
+    for (int i = 0; i < starts.size(); i++) {
+      offsets[i] = starts.get(i);
+    }
+    offsets[starts.size()] = length;
+    return offsets;
+  }
+
+  // first position >= position that follows a '\n'
+  private static long nextLineStart(RandomAccessFile in, byte[] buffer, long position, long length)
+      throws IOException {
+    long current = position - 1;
+    in.seek(current);
+    while (current < length) {
+      int read = in.read(buffer);
+      if (read < 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (buffer[i] == '\n') {
+          return current + i + 1;
+        }
+      }
+      current += read;
+    }
+    return length;
+  }
+
+  private void writeSummary(Path outputDir, List<Path> partFiles) throws IOException {
+    Configuration configuration = new Configuration();
+    List<Footer> footers = new ArrayList<Footer>();
+    for (Path partFile : partFiles) {
+      footers.add(new Footer(partFile, ParquetFileReader.readFooter(configuration, partFile)));
+    }
+    ParquetFileWriter.writeMetadataFile(configuration, outputDir, footers);
+  }
+
+  private static <T> T get(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while converting", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  private class PartConverter implements Callable<Long> {
+    private final MappedFile mappedFile;
+    private final long start;
+    private final long end;
+    private final Path partFile;
+
+    PartConverter(MappedFile mappedFile, long start, long end, Path partFile) {
+      this.mappedFile = mappedFile;
+      this.start = start;
+      this.end = end;
+      this.partFile = partFile;
+    }
+
+    @Override
+    public Long call() throws IOException {
+      InputStream in;
+      if (mappedFile != null) {
+        in = mappedFile.openStream(start, end);
+      } else {
+        FileInputStream fileIn = new FileInputStream(csvFile);
+        fileIn.getChannel().position(start);
+        in = fileIn;
+      }
+      CsvTokenizer tokenizer = new CsvTokenizer(in, end - start);
+      CsvRecord record = new CsvRecord();
+      long lines = 0;
+      CsvRecordParquetWriter writer = null;
+      try {
+        writer = CsvRecordParquetWriter.open(partFile, schema, options);
+        while (tokenizer.next(record)) {
+          writer.write(record);
+          ++lines;
+        }
+        writer.close();
+      } finally {
+        Utils.closeQuietly(writer);
+        Utils.closeQuietly(tokenizer);
+      }
+      return lines;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+import parquet.Log;
+import parquet.column.page.PageReadStore;
+import parquet.example.data.Group;
+import parquet.example.data.simple.convert.GroupRecordConverter;
+import parquet.hadoop.ParquetFileReader;
+import parquet.hadoop.metadata.BlockMetaData;
+import parquet.hadoop.metadata.ParquetMetadata;
+import parquet.io.MessageColumnIO;
+import parquet.io.RecordReader;
+import parquet.schema.MessageType;
+import parquet.schema.PrimitiveType.PrimitiveTypeName;
+
+/**
+ * Exports parquet to csv with the row groups decoded and formatted in parallel.
+ * Footers are read once, each row group becomes a task of a fork-join pool
+ * that formats it into its own byte buffer, and the buffers are written out in
+ * row group order. At most twice the parallelism of row groups are buffered,
+ * and no more row groups are started once the uncompressed sizes of those in
+ * flight reach maxBufferedBytes, the csv of a row group being about as large.
+ * A single row group is always exported even when larger.
+ */
+public class ParallelParquetExporter {
+
+  private static final Log LOG = Log.getLog(ParallelParquetExporter.class);
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Configuration configuration;
+  private final int parallelism;
+  private final long maxBufferedBytes;
+
+  /**
+   * Buffers at most export.maxBufferedMegs (256 by default) of row groups.
+   */
+  public ParallelParquetExporter(Configuration configuration, int parallelism) {
+    this(configuration, parallelism, Long.getLong("export.maxBufferedMegs", 256) * 1024 * 1024);
+  }
+
+  public ParallelParquetExporter(Configuration configuration, int parallelism, long maxBufferedBytes) {
+    this.configuration = configuration;
+    this.parallelism = parallelism;
+    this.maxBufferedBytes = maxBufferedBytes;
+  }
+
+  public void export(File[] parquetFiles, File csvOutputFile) throws IOException {
+    List<RowGroupTask> tasks = new ArrayList<RowGroupTask>();
+    for (File file : parquetFiles) {
+      Path path = new Path(file.toURI());
+      ParquetMetadata footer = FooterCache.getDefault().readFooter(configuration, path);
+      MessageType schema = footer.getFileMetaData().getSchema();
+      for (BlockMetaData block : footer.getBlocks()) {
+        tasks.add(new RowGroupTask(path, schema, block));
+      }
+    }
+    LOG.info("Exporting " + tasks.size() + " row groups with parallelism " + parallelism);
+
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    FileOutputStream out = new FileOutputStream(csvOutputFile);
+    LinkedList<Future<ByteArrayOutputStream>> inFlight = new LinkedList<Future<ByteArrayOutputStream>>();
+    LinkedList<Long> inFlightBytes = new LinkedList<Long>();
+    long bufferedBytes = 0;
+    try {
+      int next = 0;
+      while (next < tasks.size() || !inFlight.isEmpty()) {
+        while (next < tasks.size() && inFlight.size() < 2 * parallelism
+            && (inFlight.isEmpty() || bufferedBytes + tasks.get(next).getBufferedBytes() <= maxBufferedBytes)) {
+          RowGroupTask task = tasks.get(next++);
+          bufferedBytes += task.getBufferedBytes();
+          inFlightBytes.add(task.getBufferedBytes());
+          inFlight.add(pool.submit(task));
+        }
+        ByteArrayOutputStream csv = get(inFlight.removeFirst());
+        bufferedBytes -= inFlightBytes.removeFirst();
+        csv.writeTo(out);
+      }
+    } finally {
+      pool.shutdownNow();
+      Utils.closeQuietly(out);
+    }
+  }
+
+  private class RowGroupTask implements Callable<ByteArrayOutputStream> {
+    private final Path path;
+    private final MessageType schema;
+    private final BlockMetaData block;
+
+    RowGroupTask(Path path, MessageType schema, BlockMetaData block) {
+      this.path = path;
+      this.schema = schema;
+      this.block = block;
+    }
+
+    long getBufferedBytes() {
+      return block.getTotalByteSize();
+    }
+
+    @Override
+    public ByteArrayOutputStream call() throws IOException {
+      ParquetFileReader reader = new ParquetFileReader(
+          configuration, path, Collections.singletonList(block), schema.getColumns());
+      try {
+        PageReadStore pages = reader.readNextRowGroup();
+        long rows = pages.getRowCount();
+        MessageColumnIO columnIO = ConvertUtils.getColumnIO(schema);
+        RecordReader<Group> recordReader = columnIO.getRecordReader(pages, new GroupRecordConverter(schema));
+        PrimitiveTypeName[] types = ConvertUtils.getColumnTypes(schema);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+        CsvByteSink w = new CsvByteSink(Channels.newChannel(out), BUFFER_SIZE);
+        for (long i = 0; i < rows; i++) {
+          ConvertUtils.writeGroup(w, recordReader.read(), types);
+        }
+        w.close();
+        return out;
+      } finally {
+        Utils.closeQuietly(reader);
+      }
+    }
+  }
+
+  private static <T> T get(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while exporting", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+}
@@ -0,0 +1,314 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+import parquet.column.ColumnDescriptor;
+import parquet.hadoop.metadata.ParquetMetadata;
+import parquet.schema.MessageType;
+import parquet.schema.MessageTypeParser;
+
+/**
+ * Compares the values of a parquet file, or directory of part files, with
+ * those of another parquet file or of the csv it was converted from,
+ * without converting anything to csv.
+ * Both sides are read into {@link ColumnBatch}es, the parquet files column
+ * by column through {@link ColumnBatchReader}, and the batches are compared
+ * column by column: nulls, from the definition levels, and typed values.
+ * Only a batch of each side is in memory at a time.
+ */
+public class ParquetComparator {
+
+  private static final int BATCH_SIZE = 4096;
+
+  private final Configuration configuration = new Configuration(true);
+  private final int maxReported;
+
+  public ParquetComparator() {
+    this(10);
+  }
+
+  /**
+   * @param maxReported number of differing values listed when comparison fails
+   */
+  public ParquetComparator(int maxReported) {
+    this.maxReported = maxReported;
+  }
+
+  public void compare(File expectedParquetFile, File actualParquetFile) throws IOException {
+    compare(new ParquetSource(expectedParquetFile), new ParquetSource(actualParquetFile),
+        expectedParquetFile, actualParquetFile);
+  }
+
+  public void compareToCsv(File expectedCsvFile, File actualParquetFile) throws IOException {
+    compare(new CsvSource(expectedCsvFile), new ParquetSource(actualParquetFile),
+        expectedCsvFile, actualParquetFile);
+  }
+
+  private void compare(RowSource expected, RowSource actual, File expectedFile, File actualFile)
+      throws IOException {
+    try {
+      String prefix = actualFile.getName() + " differs from " + expectedFile.getName();
+      checkSchemas(prefix, expected.getSchema(), actual.getSchema());
+
+      ColumnBatch expectedBatch = new ColumnBatch(expected.getSchema(), BATCH_SIZE);
+      ColumnBatch actualBatch = new ColumnBatch(actual.getSchema(), BATCH_SIZE);
+      int expectedRow = 0;
+      int actualRow = 0;
+      long rowCount = 0;
+      long expectedRowCount = -1;
+      long actualRowCount = -1;
+      List<String> mismatches = new ArrayList<String>();
+      while (true) {
+        if (expectedRow == expectedBatch.size()) {
+          expectedRow = 0;
+          if (!expected.next(expectedBatch, BATCH_SIZE)) {
+            expectedRowCount = rowCount;
+          }
+        }
+        if (actualRow == actualBatch.size()) {
+          actualRow = 0;
+          if (!actual.next(actualBatch, BATCH_SIZE)) {
+            actualRowCount = rowCount;
+          }
+        }
+        if (expectedRowCount >= 0 || actualRowCount >= 0) {
+          break;
+        }
+        int rows = Math.min(expectedBatch.size() - expectedRow, actualBatch.size() - actualRow);
+        for (int column = 0; column < expectedBatch.getColumnCount(); column++) {
+          compare(expectedBatch.getVector(column), expectedRow, actualBatch.getVector(column), actualRow,
+              rows, rowCount, mismatches);
+        }
+        expectedRow += rows;
+        actualRow += rows;
+        rowCount += rows;
+      }
+      if (expectedRowCount < 0) {
+        expectedRowCount = rowCount + count(expected, expectedBatch, expectedRow);
+      }
+      if (actualRowCount < 0) {
+        actualRowCount = rowCount + count(actual, actualBatch, actualRow);
+      }
+
+      if (!mismatches.isEmpty() || expectedRowCount != actualRowCount) {
+        StringBuilder message = new StringBuilder(prefix);
+        if (expectedRowCount != actualRowCount) {
+          message.append(", expected ").append(expectedRowCount)
+              .append(" rows but was ").append(actualRowCount);
+        }
+        for (String mismatch : mismatches) {
+          message.append('\n').append(mismatch);
+        }
+        fail(message.toString());
+      }
+    } finally {
+      Utils.closeQuietly(expected);
+      Utils.closeQuietly(actual);
+    }
+  }
+
+  private static void checkSchemas(String prefix, MessageType expected, MessageType actual) {
+    List<ColumnDescriptor> expectedColumns = expected.getColumns();
+    List<ColumnDescriptor> actualColumns = actual.getColumns();
+    boolean same = expectedColumns.size() == actualColumns.size();
+    for (int i = 0; same && i < expectedColumns.size(); i++) {
+      same = expectedColumns.get(i).getType() == actualColumns.get(i).getType();
+    }
+    if (!same) {
+      fail(prefix + ", expected schema " + expected + " but was " + actual);
+    }
+  }
+
+  // rows left in source after the first row of batch
+  private static long count(RowSource source, ColumnBatch batch, int row) throws IOException {
+    long rows = batch.size() - row;
+    while (source.next(batch, BATCH_SIZE)) {
+      rows += batch.size();
+    }
+    return rows;
+  }
+
+  private void compare(ColumnVector expected, int expectedRow, ColumnVector actual, int actualRow,
+      int rows, long rowCount, List<String> mismatches) {
+    for (int i = 0; i < rows && mismatches.size() < maxReported; i++) {
+      if (!equals(expected, expectedRow + i, actual, actualRow + i)) {
+        mismatches.add("row " + (rowCount + i) + " column " + expected.getDescriptor().getPath()[0]
+            + " expected:<" + toString(expected, expectedRow + i)
+            + "> but was:<" + toString(actual, actualRow + i) + ">");
+      }
+    }
+  }
+
+  private static boolean equals(ColumnVector expected, int expectedRow, ColumnVector actual, int actualRow) {
+    if (expected.isNull(expectedRow) || actual.isNull(actualRow)) {
+      return expected.isNull(expectedRow) == actual.isNull(actualRow);
+    }
+    switch (expected.getType()) {
+    case BOOLEAN:
+      return expected.getBoolean(expectedRow) == actual.getBoolean(actualRow);
+    case INT32:
+      return expected.getInt(expectedRow) == actual.getInt(actualRow);
+    case INT64:
+      return expected.getLong(expectedRow) == actual.getLong(actualRow);
+    case FLOAT:
+      return Float.floatToIntBits(expected.getFloat(expectedRow))
+          == Float.floatToIntBits(actual.getFloat(actualRow));
+    case DOUBLE:
+      return Double.doubleToLongBits(expected.getDouble(expectedRow))
+          == Double.doubleToLongBits(actual.getDouble(actualRow));
+    case BINARY:
+      int length = expected.getBinaryLength(expectedRow);
+      if (length != actual.getBinaryLength(actualRow)) {
+        return false;
+      }
+      byte[] expectedBytes = expected.getBinaryBytes();
+      byte[] actualBytes = actual.getBinaryBytes();
+      int expectedOffset = expected.getBinaryOffset(expectedRow);
+      int actualOffset = actual.getBinaryOffset(actualRow);
+      for (int i = 0; i < length; i++) {
+        if (expectedBytes[expectedOffset + i] != actualBytes[actualOffset + i]) {
+          return false;
+        }
+      }
+      return true;
+    default:
+      throw new IllegalArgumentException("Unsupported column type: " + expected.getType());
+    }
+  }
+
+  private static String toString(ColumnVector vector, int row) {
+    if (vector.isNull(row)) {
+      return "null";
+    }
+    switch (vector.getType()) {
+    case BOOLEAN:
+      return String.valueOf(vector.getBoolean(row));
+    case INT32:
+      return String.valueOf(vector.getInt(row));
+    case INT64:
+      return String.valueOf(vector.getLong(row));
+    case FLOAT:
+      return String.valueOf(vector.getFloat(row));
+    case DOUBLE:
+      return String.valueOf(vector.getDouble(row));
+    case BINARY:
+      return new String(vector.getBinaryBytes(), vector.getBinaryOffset(row), vector.getBinaryLength(row),
+          CsvRecord.UTF8);
+    default:
+      throw new IllegalArgumentException("Unsupported column type: " + vector.getType());
+    }
+  }
+
+  private interface RowSource extends Closeable {
+    MessageType getSchema();
+
+    /**
+     * Replaces the content of batch with up to maxRows rows.
+     * @return false when there are no rows left
+     */
+    boolean next(ColumnBatch batch, int maxRows) throws IOException;
+  }
+
+  /**
+   * Reads a parquet file or the part files of a directory in order.
+   */
+  private class ParquetSource implements RowSource {
+    private final File[] files;
+    private final MessageType schema;
+    private int nextFile;
+    private ColumnBatchReader reader;
+
+    ParquetSource(File parquetFile) throws IOException {
+      this.files = ConvertUtils.getParquetFiles(parquetFile);
+      if (files.length == 0) {
+        throw new IOException("No parquet files in " + parquetFile.getAbsolutePath());
+      }
+      this.reader = open(files[nextFile++]);
+      this.schema = reader.getSchema();
+    }
+
+    private ColumnBatchReader open(File file) throws IOException {
+      Path path = new Path(file.toURI());
+      ParquetMetadata footer = FooterCache.getDefault().readFooter(configuration, path);
+      return new ColumnBatchReader(configuration, path, footer.getBlocks(), footer.getFileMetaData().getSchema());
+    }
+
+    @Override
+    public MessageType getSchema() {
+      return schema;
+    }
+
+    @Override
+    public boolean next(ColumnBatch batch, int maxRows) throws IOException {
+      while (!reader.next(batch, maxRows)) {
+        if (nextFile == files.length) {
+          return false;
+        }
+        reader.close();
+        reader = open(files[nextFile++]);
+      }
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+  }
+
+  private static class CsvSource implements RowSource {
+    private final MessageType schema;
+    private final CsvTokenizer tokenizer;
+    private final CsvBatchParser parser;
+    private final CsvRecord record = new CsvRecord();
+
+    CsvSource(File csvFile) throws IOException {
+      this.schema = MessageTypeParser.parseMessageType(ConvertUtils.getSchema(csvFile));
+      this.tokenizer = new CsvTokenizer(MappedFile.open(csvFile));
+      this.parser = new CsvBatchParser(schema);
+    }
+
+    @Override
+    public MessageType getSchema() {
+      return schema;
+    }
+
+    @Override
+    public boolean next(ColumnBatch batch, int maxRows) throws IOException {
+      batch.reset();
+      while (batch.size() < maxRows && tokenizer.next(record)) {
+        parser.parse(record, batch);
+      }
+      return batch.size() > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+      tokenizer.close();
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+import parquet.Log;
+import parquet.Preconditions;
+import parquet.column.ColumnDescriptor;
+import parquet.column.ColumnReader;
+import parquet.column.impl.ColumnReadStoreImpl;
+import parquet.column.page.PageReadStore;
+import parquet.example.data.simple.convert.GroupRecordConverter;
+import parquet.hadoop.ParquetFileReader;
+import parquet.hadoop.metadata.BlockMetaData;
+import parquet.hadoop.metadata.ColumnChunkMetaData;
+import parquet.hadoop.metadata.ParquetMetadata;
+import parquet.schema.MessageType;
+import parquet.schema.Type;
+
+/**
+ * Reads the projected columns of the rows of a flat parquet file matching
+ * all the predicates into {@link ColumnBatch}es.
+ * Only the column chunks of the projection and of the predicates are read.
+ * The files written by this version of parquet have no row group statistics,
+ * so for each row group the predicate columns are read and evaluated first:
+ * a row group without matching rows is skipped without reading the chunks of
+ * the other columns, otherwise only the matching rows are materialized.
+ */
+public class ParquetScan implements Closeable {
+
+  private static final Log LOG = Log.getLog(ParquetScan.class);
+
+  private final Configuration configuration;
+  private final Path file;
+  private final List<BlockMetaData> blocks;
+  private final MessageType schema;
+  private final MessageType predicateSchema;
+  private final List<ColumnPredicate> predicates;
+  private final ColumnPredicate[][] predicatesByColumn;
+  private int nextBlock;
+  private ColumnBatchReader reader;
+
+  private long bytesRead;
+  private int rowGroupsRead;
+  private int rowGroupsSkipped;
+  private long rowsMatched;
+
+  /**
+   * @param columns the columns to read, in order, or null for all of them
+   * @param predicates conditions the rows must all match
+   */
+  public ParquetScan(Configuration configuration, Path file, ParquetMetadata footer,
+      List<String> columns, List<ColumnPredicate> predicates) {
+    MessageType fileSchema = footer.getFileMetaData().getSchema();
+    this.configuration = configuration;
+    this.file = file;
+    this.blocks = footer.getBlocks();
+    this.schema = columns == null ? fileSchema : project(fileSchema, columns);
+    this.predicates = predicates;
+    Set<String> predicateColumns = new LinkedHashSet<String>();
+    for (ColumnPredicate predicate : predicates) {
+      predicateColumns.add(predicate.getColumn());
+    }
+    this.predicateSchema = project(fileSchema, new ArrayList<String>(predicateColumns));
+    this.predicatesByColumn = new ColumnPredicate[predicateColumns.size()][];
+    int i = 0;
+    for (String column : predicateColumns) {
+      List<ColumnPredicate> columnPredicates = new ArrayList<ColumnPredicate>();
+      for (ColumnPredicate predicate : predicates) {
+        if (predicate.getColumn().equals(column)) {
+          columnPredicates.add(predicate);
+        }
+      }
+      predicatesByColumn[i++] = columnPredicates.toArray(new ColumnPredicate[columnPredicates.size()]);
+    }
+  }
+
+  static MessageType project(MessageType schema, List<String> columns) {
+    List<Type> fields = new ArrayList<Type>();
+    for (String column : columns) {
+      Preconditions.checkArgument(schema.containsField(column), "Unknown column " + column + " in " + schema);
+      fields.add(schema.getType(column));
+    }
+    return new MessageType(schema.getName(), fields);
+  }
+
+  /**
+   * @return the projection read
+   */
+  public MessageType getSchema() {
+    return schema;
+  }
+
+  /**
+   * Replaces the content of batch with up to maxRows matching rows.
+   * @return false when there are no rows left
+   */
+  public boolean next(ColumnBatch batch, int maxRows) throws IOException {
+    while (true) {
+      if (reader != null) {
+        if (reader.next(batch, maxRows)) {
+          rowsMatched += batch.size();
+          return true;
+        }
+        reader.close();
+        reader = null;
+      }
+      if (nextBlock == blocks.size()) {
+        batch.reset();
+        return false;
+      }
+      openNextBlock();
+    }
+  }
+
+  private void openNextBlock() throws IOException {
+    BlockMetaData block = blocks.get(nextBlock++);
+    if (block.getRowCount() == 0) {
+      // parquet 1.0 can close a file with an empty last row group, which it can't read back
+      return;
+    }
+    BitSet selection = null;
+    if (!predicates.isEmpty()) {
+      selection = evaluate(block);
+      if (selection.isEmpty()) {
+        ++rowGroupsSkipped;
+        return;
+      }
+    }
+    ++rowGroupsRead;
+    bytesRead += getChunkBytes(block, schema);
+    reader = new ColumnBatchReader(configuration, file, Collections.singletonList(block), schema);
+    reader.setSelection(selection);
+  }
+
+  // reads the predicate columns of the block, the rows matching them all are set
+  private BitSet evaluate(BlockMetaData block) throws IOException {
+    List<ColumnDescriptor> columns = predicateSchema.getColumns();
+    ParquetFileReader fileReader = new ParquetFileReader(
+        configuration, file, Collections.singletonList(block), columns);
+    try {
+      PageReadStore pages = fileReader.readNextRowGroup();
+      bytesRead += getChunkBytes(block, predicateSchema);
+      int rows = (int) pages.getRowCount();
+      BitSet selection = new BitSet(rows);
+      selection.set(0, rows);
+      ColumnReadStoreImpl store = new ColumnReadStoreImpl(
+          pages, new GroupRecordConverter(predicateSchema).getRootConverter(), predicateSchema);
+      for (int i = 0; i < columns.size(); i++) {
+        ColumnDescriptor column = columns.get(i);
+        ColumnReader columnReader = store.getColumnReader(column);
+        for (int row = 0; row < rows; row++, columnReader.consume()) {
+          if (!selection.get(row)) {
+            if (columnReader.getCurrentDefinitionLevel() == column.getMaxDefinitionLevel()) {
+              columnReader.skip();
+            }
+            continue;
+          }
+          // the values are decoded when read or skipped, not when consumed
+          boolean defined = columnReader.getCurrentDefinitionLevel() == column.getMaxDefinitionLevel();
+          boolean read = false;
+          for (ColumnPredicate predicate : predicatesByColumn[i]) {
+            read |= defined && predicate.readsValue();
+            if (!predicate.matches(columnReader, column)) {
+              selection.clear(row);
+              break;
+            }
+          }
+          if (defined && !read) {
+            columnReader.skip();
+          }
+        }
+      }
+      return selection;
+    } finally {
+      fileReader.close();
+    }
+  }
+
+  private static long getChunkBytes(BlockMetaData block, MessageType schema) {
+    long bytes = 0;
+    for (ColumnChunkMetaData chunk : block.getColumns()) {
+      for (ColumnDescriptor column : schema.getColumns()) {
+        if (Arrays.equals(chunk.getPath().toArray(), column.getPath())) {
+          bytes += chunk.getTotalSize();
+        }
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * @return compressed bytes of the column chunks read so far
+   */
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  public int getRowGroupsRead() {
+    return rowGroupsRead;
+  }
+
+  /**
+   * @return row groups with no row matching the predicates
+   */
+  public int getRowGroupsSkipped() {
+    return rowGroupsSkipped;
+  }
+
+  public long getRowsMatched() {
+    return rowsMatched;
+  }
+
+  @Override
+  public void close() throws IOException {
+    LOG.info("Scanned " + file.getName() + ": " + rowsMatched + " rows matched " + predicates
+        + ", read " + rowGroupsRead + " row groups, skipped " + rowGroupsSkipped + ", " + bytesRead + " bytes");
+    if (reader != null) {
+      reader.close();
+      reader = null;
+    }
+  }
+}
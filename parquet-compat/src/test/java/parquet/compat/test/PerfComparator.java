@@ -0,0 +1,165 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import parquet.Log;
+
+/**
+ * Flags perf regressions between two versions: the current version is
+ * reported when its mean elapsed time is at least minRelativeChange slower
+ * and a one-sided Welch t-test over the samples says the slowdown is
+ * significant at the 95% level.
+ * With a single sample on either side there is no variance to test against,
+ * so only the relative change is checked.
+ */
+public class PerfComparator {
+
+  private static final Log LOG = Log.getLog(PerfComparator.class);
+
+  // one-sided 95% critical values of Student's t for 1 to 30 degrees of freedom
+  private static final double[] T_CRITICAL = {
+    6.314, 2.920, 2.353, 2.132, 2.015, 1.943, 1.895, 1.860, 1.833, 1.812,
+    1.796, 1.782, 1.771, 1.761, 1.753, 1.746, 1.740, 1.734, 1.729, 1.725,
+    1.721, 1.717, 1.714, 1.711, 1.708, 1.706, 1.703, 1.701, 1.699, 1.697
+  };
+  private static final double T_CRITICAL_NORMAL = 1.645;
+
+  private final double minRelativeChange;
+
+  public PerfComparator(double minRelativeChange) {
+    this.minRelativeChange = minRelativeChange;
+  }
+
+  public static class Regression {
+    private final PerfResult current;
+    private final PerfResult previous;
+    private final double change;
+
+    Regression(PerfResult current, PerfResult previous, double change) {
+      this.current = current;
+      this.previous = previous;
+      this.change = change;
+    }
+
+    public PerfResult getCurrent() {
+      return current;
+    }
+
+    public PerfResult getPrevious() {
+      return previous;
+    }
+
+    /**
+     * @return relative change of the mean elapsed time, 0.1 is 10% slower
+     */
+    public double getChange() {
+      return change;
+    }
+
+    @Override
+    public String toString() {
+      return current.getKey() + " is " + Math.round(change * 100) + "% slower in "
+          + current.getVersion() + " than in " + previous.getVersion()
+          + " (" + current.getSamples() + " vs " + previous.getSamples() + ")";
+    }
+  }
+
+  /**
+   * @param current results of this version
+   * @param previous results of an older version keyed by {@link PerfResult#getKey()}
+   * @return the significant regressions, results without a counterpart are skipped
+   */
+  public List<Regression> compare(List<PerfResult> current, Map<String, PerfResult> previous) {
+    List<Regression> regressions = new ArrayList<Regression>();
+    for (PerfResult result : current) {
+      PerfResult previousResult = previous.get(result.getKey());
+      if (previousResult == null) {
+        LOG.warn("No previous result for " + result.getKey());
+        continue;
+      }
+      Regression regression = compare(result, previousResult);
+      if (regression != null) {
+        regressions.add(regression);
+      }
+    }
+    return regressions;
+  }
+
+  public Regression compare(PerfResult current, PerfResult previous) {
+    double[] cur = current.getElapsedMillis();
+    double[] prev = previous.getElapsedMillis();
+    if (cur.length == 0 || prev.length == 0) {
+      return null;
+    }
+    double curMean = mean(cur);
+    double prevMean = mean(prev);
+    double change = prevMean == 0 ? 0 : (curMean - prevMean) / prevMean;
+    if (change < minRelativeChange) {
+      return null;
+    }
+    if (cur.length > 1 && prev.length > 1 && !significant(cur, prev)) {
+      LOG.info(current.getKey() + " is " + Math.round(change * 100)
+          + "% slower than " + previous.getVersion() + " but within noise");
+      return null;
+    }
+    return new Regression(current, previous, change);
+  }
+
+  /**
+   * one-sided Welch t-test that the mean of a is greater than the mean of b
+   */
+  static boolean significant(double[] a, double[] b) {
+    double varA = variance(a) / a.length;
+    double varB = variance(b) / b.length;
+    double diff = mean(a) - mean(b);
+    if (varA + varB == 0) {
+      return diff > 0;
+    }
+    double t = diff / Math.sqrt(varA + varB);
+    double df = (varA + varB) * (varA + varB)
+        / (varA * varA / (a.length - 1) + varB * varB / (b.length - 1));
+    return t > criticalValue(df);
+  }
+
+  static double criticalValue(double degreesOfFreedom) {
+    int df = (int) Math.floor(degreesOfFreedom);
+    if (df < 1) {
+      return T_CRITICAL[0];
+    }
+    return df <= T_CRITICAL.length ? T_CRITICAL[df - 1] : T_CRITICAL_NORMAL;
+  }
+
+  static double mean(double[] values) {
+    double sum = 0;
+    for (double v : values) {
+      sum += v;
+    }
+    return sum / values.length;
+  }
+
+  static double variance(double[] values) {
+    double mean = mean(values);
+    double sum = 0;
+    for (double v : values) {
+      sum += (v - mean) * (v - mean);
+    }
+    return sum / (values.length - 1);
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures elapsed time, allocation, gc and peak heap around one perf sample.
+ * Allocation is only counted for the thread that started the meter.
+ */
+public class PerfMeter {
+
+  private final long startNanos;
+  private final long startAllocatedBytes;
+  private final long startGcCount;
+  private final long startGcMillis;
+
+  private long elapsedMillis;
+  private long allocatedBytes;
+  private long gcCountDelta;
+  private long gcMillisDelta;
+  private long peakHeapBytes;
+
+  private PerfMeter() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+    this.startGcCount = gcCount();
+    this.startGcMillis = gcMillis();
+    this.startAllocatedBytes = allocatedBytes();
+    this.startNanos = System.nanoTime();
+  }
+
+  public static PerfMeter start() {
+    return new PerfMeter();
+  }
+
+  /**
+   * Ends the measurement, must be called before {@link #toSample(long, long, long)}.
+   */
+  public void stop() {
+    elapsedMillis = (System.nanoTime() - startNanos) / 1000000;
+    long allocated = allocatedBytes();
+    allocatedBytes = allocated < 0 || startAllocatedBytes < 0 ? -1 : allocated - startAllocatedBytes;
+    gcCountDelta = gcCount() - startGcCount;
+    gcMillisDelta = gcMillis() - startGcMillis;
+    peakHeapBytes = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peakHeapBytes += pool.getPeakUsage().getUsed();
+      }
+    }
+  }
+
+  public PerfResult.Sample toSample(long rows, long inputBytes, long outputBytes) {
+    return new PerfResult.Sample(elapsedMillis, rows, inputBytes, outputBytes,
+        allocatedBytes, gcCountDelta, gcMillisDelta, peakHeapBytes);
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gc.getCollectionCount());
+    }
+    return count;
+  }
+
+  private static long gcMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += Math.max(0, gc.getCollectionTime());
+    }
+    return millis;
+  }
+
+  private static long allocatedBytes() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+      if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+        return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+}
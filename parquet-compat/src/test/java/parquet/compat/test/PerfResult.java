@@ -0,0 +1,182 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Repeated samples of one perf measurement, identified by the parquet version
+ * that produced them and the (operation, dataset, encoding, codec) they measured.
+ */
+public class PerfResult {
+
+  private final String version;
+  private final String operation;
+  private final String dataset;
+  private final String encoding;
+  private final String codec;
+  private final List<Sample> samples = new ArrayList<Sample>();
+
+  public PerfResult(String version, String operation, String dataset, String encoding, String codec) {
+    this.version = version;
+    this.operation = operation;
+    this.dataset = dataset;
+    this.encoding = encoding;
+    this.codec = codec;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  public String getOperation() {
+    return operation;
+  }
+
+  public String getDataset() {
+    return dataset;
+  }
+
+  public String getEncoding() {
+    return encoding;
+  }
+
+  public String getCodec() {
+    return codec;
+  }
+
+  /**
+   * @return the key this result is compared under across versions
+   */
+  public String getKey() {
+    return operation + "/" + dataset + "/" + encoding + "/" + codec;
+  }
+
+  public List<Sample> getSamples() {
+    return samples;
+  }
+
+  public void addSample(Sample sample) {
+    samples.add(sample);
+  }
+
+  public double[] getElapsedMillis() {
+    double[] values = new double[samples.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = samples.get(i).getElapsedMillis();
+    }
+    return values;
+  }
+
+  public double getMedianElapsedMillis() {
+    double[] values = getElapsedMillis();
+    if (values.length == 0) {
+      return Double.NaN;
+    }
+    Arrays.sort(values);
+    int middle = values.length / 2;
+    return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+  }
+
+  @Override
+  public String toString() {
+    return version + ":" + getKey() + " " + samples;
+  }
+
+  /**
+   * One run of the measured operation.
+   */
+  public static class Sample {
+    private final long elapsedMillis;
+    private final long rows;
+    private final long inputBytes;
+    private final long outputBytes;
+    private final long allocatedBytes;
+    private final long gcCount;
+    private final long gcMillis;
+    private final long peakHeapBytes;
+
+    public Sample(long elapsedMillis, long rows, long inputBytes, long outputBytes,
+        long allocatedBytes, long gcCount, long gcMillis, long peakHeapBytes) {
+      this.elapsedMillis = elapsedMillis;
+      this.rows = rows;
+      this.inputBytes = inputBytes;
+      this.outputBytes = outputBytes;
+      this.allocatedBytes = allocatedBytes;
+      this.gcCount = gcCount;
+      this.gcMillis = gcMillis;
+      this.peakHeapBytes = peakHeapBytes;
+    }
+
+    public long getElapsedMillis() {
+      return elapsedMillis;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public long getInputBytes() {
+      return inputBytes;
+    }
+
+    public long getOutputBytes() {
+      return outputBytes;
+    }
+
+    /**
+     * @return bytes allocated by the measuring thread, -1 if the JVM can't tell
+     */
+    public long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+
+    public long getGcCount() {
+      return gcCount;
+    }
+
+    public long getGcMillis() {
+      return gcMillis;
+    }
+
+    public long getPeakHeapBytes() {
+      return peakHeapBytes;
+    }
+
+    public double getRowsPerSecond() {
+      return perSecond(rows);
+    }
+
+    public double getMBPerSecond() {
+      return perSecond(inputBytes) / (1024 * 1024);
+    }
+
+    public double getAllocatedMBPerSecond() {
+      return allocatedBytes < 0 ? -1 : perSecond(allocatedBytes) / (1024 * 1024);
+    }
+
+    private double perSecond(long count) {
+      return elapsedMillis == 0 ? 0 : count * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+      return elapsedMillis + "ms";
+    }
+  }
+}
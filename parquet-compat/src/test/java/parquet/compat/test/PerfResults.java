@@ -0,0 +1,166 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Stores perf results of a parquet-compat module as one csv line per sample
+ * under target/test/perfresults.csv so other versions can compare against them.
+ */
+public class PerfResults {
+
+  private static final String DELIMITER = "|";
+
+  private static final String[] COLUMNS = {
+    "version", "operation", "dataset", "encoding", "codec", "sample",
+    "elapsed_millis", "rows", "input_bytes", "output_bytes",
+    "rows_per_second", "mb_per_second",
+    "allocated_bytes", "allocated_mb_per_second",
+    "gc_count", "gc_millis", "peak_heap_bytes"
+  };
+
+  public static File getResultsFile() {
+    return new File("target/test/perfresults.csv");
+  }
+
+  public static File getResultsFile(String version) {
+    return new File("../" + version + "/target/test/perfresults.csv");
+  }
+
+  /**
+   * Adds the result to this module's results file, replacing previous
+   * samples stored under the same key.
+   */
+  public static void save(PerfResult result) throws IOException {
+    File file = getResultsFile();
+    Map<String, PerfResult> results = new LinkedHashMap<String, PerfResult>();
+    if (file.exists()) {
+      for (PerfResult existing : read(file)) {
+        results.put(existing.getKey(), existing);
+      }
+    }
+    results.put(result.getKey(), result);
+    write(file, new ArrayList<PerfResult>(results.values()));
+  }
+
+  /**
+   * @return the results stored by a previous version, keyed by {@link PerfResult#getKey()}
+   */
+  public static Map<String, PerfResult> readVersion(String version) throws IOException {
+    Map<String, PerfResult> results = new HashMap<String, PerfResult>();
+    for (PerfResult result : read(getResultsFile(version))) {
+      results.put(result.getKey(), result);
+    }
+    return results;
+  }
+
+  public static void write(File file, List<PerfResult> results) throws IOException {
+    file.getParentFile().mkdirs();
+    PrintWriter writer = new PrintWriter(file);
+    try {
+      writeLine(writer, COLUMNS);
+      for (PerfResult result : results) {
+        int i = 0;
+        for (PerfResult.Sample s : result.getSamples()) {
+          writeLine(writer, new Object[] {
+              result.getVersion(), result.getOperation(), result.getDataset(),
+              result.getEncoding(), result.getCodec(), i++,
+              s.getElapsedMillis(), s.getRows(), s.getInputBytes(), s.getOutputBytes(),
+              s.getRowsPerSecond(), s.getMBPerSecond(),
+              s.getAllocatedBytes(), s.getAllocatedMBPerSecond(),
+              s.getGcCount(), s.getGcMillis(), s.getPeakHeapBytes() });
+        }
+      }
+      if (writer.checkError()) {
+        throw new IOException("Error writing " + file.getAbsolutePath());
+      }
+    } finally {
+      Utils.closeQuietly(writer);
+    }
+  }
+
+  public static List<PerfResult> read(File file) throws IOException {
+    BufferedReader reader = new BufferedReader(new FileReader(file));
+    Pattern delimiter = Pattern.compile(Pattern.quote(DELIMITER));
+    try {
+      String header = reader.readLine();
+      if (header == null) {
+        throw new IOException("Empty perf results file " + file.getAbsolutePath());
+      }
+      List<String> columns = Arrays.asList(delimiter.split(header));
+      Map<String, PerfResult> results = new LinkedHashMap<String, PerfResult>();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = delimiter.split(line);
+        if (fields.length != columns.size()) {
+          throw new IOException("Malformed line in " + file.getAbsolutePath() + ": " + line);
+        }
+        PerfResult result = new PerfResult(
+            field(columns, fields, "version"), field(columns, fields, "operation"),
+            field(columns, fields, "dataset"), field(columns, fields, "encoding"),
+            field(columns, fields, "codec"));
+        PerfResult existing = results.get(result.getKey());
+        if (existing == null) {
+          results.put(result.getKey(), result);
+        } else {
+          result = existing;
+        }
+        result.addSample(new PerfResult.Sample(
+            longField(columns, fields, "elapsed_millis"), longField(columns, fields, "rows"),
+            longField(columns, fields, "input_bytes"), longField(columns, fields, "output_bytes"),
+            longField(columns, fields, "allocated_bytes"), longField(columns, fields, "gc_count"),
+            longField(columns, fields, "gc_millis"), longField(columns, fields, "peak_heap_bytes")));
+      }
+      return new ArrayList<PerfResult>(results.values());
+    } finally {
+      Utils.closeQuietly(reader);
+    }
+  }
+
+  private static void writeLine(PrintWriter writer, Object[] values) {
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        writer.write(DELIMITER);
+      }
+      writer.write(String.valueOf(values[i]));
+    }
+    writer.write('\n');
+  }
+
+  private static String field(List<String> columns, String[] fields, String column) throws IOException {
+    int index = columns.indexOf(column);
+    if (index < 0) {
+      throw new IOException("Missing column " + column + " in perf results");
+    }
+    return fields[index];
+  }
+
+  private static long longField(List<String> columns, String[] fields, String column) throws IOException {
+    return Long.parseLong(field(columns, fields, column));
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class TestArtifactCache {
+
+  private static class CountingProducer implements ArtifactCache.Producer {
+    private final AtomicInteger count = new AtomicInteger();
+    private final int size;
+
+    CountingProducer(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public void produce(File output) throws IOException {
+      count.incrementAndGet();
+      FileUtils.writeByteArrayToFile(output, new byte[size]);
+    }
+  }
+
+  private static File newCacheDir() {
+    File dir = new File("target/test/cache-" + System.nanoTime());
+    FileUtils.deleteQuietly(dir);
+    return dir;
+  }
+
+  @Test
+  public void testReuse() throws IOException {
+    File dir = newCacheDir();
+    ArtifactCache cache = new ArtifactCache(dir, 1024 * 1024);
+    File input = new File(dir, "input.csv");
+    FileUtils.writeStringToFile(input, "1|a\n", "UTF-8");
+
+    CountingProducer producer = new CountingProducer(10);
+    String key = cache.key(input, "plain", 1);
+    File artifact = cache.get(key, ".parquet", producer);
+    assertEquals(artifact, cache.get(cache.key(input, "plain", 1), ".parquet", producer));
+    assertEquals(1, producer.count.get());
+    assertEquals(10, artifact.length());
+
+    // same content under another name, same key
+    File copy = new File(dir, "copy.csv");
+    FileUtils.copyFile(input, copy);
+    assertEquals(key, cache.key(copy, "plain", 1));
+    assertFalse(key.equals(cache.key(input, "dict", 1)));
+
+    FileUtils.writeStringToFile(input, "1|b\n", "UTF-8");
+    input.setLastModified(input.lastModified() + 2000);
+    assertFalse(key.equals(cache.key(input, "plain", 1)));
+    // digests are remembered across instances
+    assertEquals(cache.key(input, "plain", 1), new ArtifactCache(dir, 1024 * 1024).key(input, "plain", 1));
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    File dir = newCacheDir();
+    ArtifactCache cache = new ArtifactCache(dir, 250);
+    CountingProducer producer = new CountingProducer(100);
+    File first = cache.get("first", ".bin", producer);
+    File second = cache.get("second", ".bin", producer);
+    first.setLastModified(System.currentTimeMillis() - 10000);
+    second.setLastModified(System.currentTimeMillis() - 5000);
+    // hit, first becomes the most recently used
+    cache.get("first", ".bin", producer);
+    File third = cache.get("third", ".bin", producer);
+    assertTrue(first.exists());
+    assertFalse(second.exists());
+    assertTrue(third.exists());
+    assertEquals(3, producer.count.get());
+  }
+}
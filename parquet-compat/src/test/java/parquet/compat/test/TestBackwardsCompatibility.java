@@ -63,23 +63,34 @@ public class TestBackwardsCompatibility {
 
   @Test
   public void testParquetBackwardsCompatibility() throws IOException {
-    // read all versions of parquet files and convert them into csv
-    // diff the csvs with original csvs
+    // read all versions of parquet files, convert them into csv and diff
+    // the csvs with the original csvs, then compare their values with the
+    // original csvs and with the files written by this version
     File[] originalCsvFiles = Utils.getAllOriginalCSVFiles();
     String[] compatibleVersions = Utils.getAllPreviousVersionDirs();
-    
-    for (String version : compatibleVersions) {
-      LOG.info("Testing compatibility with " + version);
-      for(File originalCsvFile : originalCsvFiles) {
-        
-        String prefix = Utils.getFileNamePrefix(originalCsvFile);
-        File versionParquetFile = Utils.getParquetFile(prefix, version, "plain", true);
-        File csvVersionedTestFile = Utils.getCsvTestFile(prefix, version, true);
+    final ParquetComparator comparator = new ParquetComparator();
+    CompatibilityMatrix matrix = new CompatibilityMatrix("backwards compatibility");
 
-        ConvertUtils.convertParquetToCSV(versionParquetFile, csvVersionedTestFile);
+    for(final File originalCsvFile : originalCsvFiles) {
+      final String prefix = Utils.getFileNamePrefix(originalCsvFile);
+      final File parquetTestFile = ConvertUtils.convertCsvToParquetCached(originalCsvFile, new ConvertOptions());
 
-        Utils.verify(originalCsvFile, csvVersionedTestFile);
+      for (final String version : compatibleVersions) {
+        matrix.add(version, prefix, new CompatibilityMatrix.Cell() {
+          @Override
+          public void run() throws IOException {
+            File versionParquetFile = Utils.getParquetFile(prefix, version, "plain", true);
+            File csvVersionedTestFile = Utils.getCsvTestFile(prefix, version, true);
+            ConvertUtils.convertParquetToCSV(versionParquetFile, csvVersionedTestFile);
+            Utils.verify(originalCsvFile, csvVersionedTestFile);
+
+            comparator.compareToCsv(originalCsvFile, versionParquetFile);
+            comparator.compare(versionParquetFile, parquetTestFile);
+          }
+        });
       }
     }
+    matrix.run();
+    LOG.info(FooterCache.getDefault());
   }
 }
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestByteUtils {
+
+  private static final String[] NUMBERS = {
+    "0", "-0", "+0", "7", "-7", "+7", "42", "2147483647", "-2147483648", "2147483648", "-2147483649",
+    "9223372036854775807", "-9223372036854775808", "9223372036854775808", "-9223372036854775809",
+    "0.0", "-0.0", "1.", ".5", "711.56", "-999.99", "9999.99", "0.1", "0.3", "3.14159265358979",
+    "123456789012345678", "1234567890123456789", "12345678901234567890.5", "1e10", "1.5E-3",
+    "NaN", "-Infinity", " 1", "1 ", "", "-", "+", ".", "1.2.3", "abc", "12a", "0x10",
+    "0.000000000000000000001", "0.0000000000000000000001", "00000000000000000000001.5"
+  };
+
+  @Test
+  public void testSameResultsAsJavaLang() {
+    for (String number : NUMBERS) {
+      checkAll(number);
+    }
+  }
+
+  @Test
+  public void testRandomDecimals() {
+    Random random = new Random(42);
+    for (int i = 0; i < 100000; i++) {
+      long unscaled = random.nextLong() % (random.nextBoolean() ? 1000000 : 10000000000000000L);
+      StringBuilder sb = new StringBuilder(Long.toString(Math.abs(unscaled)));
+      int scale = random.nextInt(Math.min(sb.length(), 8));
+      sb.insert(sb.length() - scale, scale > 0 ? "." : "");
+      checkAll((unscaled < 0 ? "-" : "") + sb);
+    }
+  }
+
+  @Test
+  public void testBoolean() {
+    for (String value : new String[] {"true", "TRUE", "True", "false", "1", "", "truee", "tru", "yes"}) {
+      byte[] bytes = value.getBytes(CsvRecord.UTF8);
+      assertEquals(value, Boolean.parseBoolean(value), ByteUtils.parseBoolean(bytes, 0, bytes.length));
+    }
+  }
+
+  private static void checkAll(String number) {
+    byte[] padded = ("||" + number + "|").getBytes(CsvRecord.UTF8);
+    int offset = 2;
+    int length = padded.length - 3;
+    Object expected;
+    try {
+      expected = Integer.parseInt(number);
+    } catch (NumberFormatException e) {
+      expected = e.getClass();
+    }
+    try {
+      assertEquals(number, expected, ByteUtils.parseInt(padded, offset, length));
+    } catch (NumberFormatException e) {
+      assertEquals(number, expected, e.getClass());
+    }
+    try {
+      expected = Long.parseLong(number);
+    } catch (NumberFormatException e) {
+      expected = e.getClass();
+    }
+    try {
+      assertEquals(number, expected, ByteUtils.parseLong(padded, offset, length));
+    } catch (NumberFormatException e) {
+      assertEquals(number, expected, e.getClass());
+    }
+    try {
+      expected = Double.doubleToRawLongBits(Double.parseDouble(number));
+    } catch (NumberFormatException e) {
+      expected = e.getClass();
+    }
+    try {
+      assertEquals(number, expected, Double.doubleToRawLongBits(ByteUtils.parseDouble(padded, offset, length)));
+    } catch (NumberFormatException e) {
+      assertEquals(number, expected, e.getClass());
+    }
+    try {
+      expected = Float.floatToRawIntBits(Float.parseFloat(number));
+    } catch (NumberFormatException e) {
+      expected = e.getClass();
+    }
+    try {
+      assertEquals(number, expected, Float.floatToRawIntBits(ByteUtils.parseFloat(padded, offset, length)));
+    } catch (NumberFormatException e) {
+      assertEquals(number, expected, e.getClass());
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class TestColumnBatchReader {
+
+  @Test
+  public void testExport() throws IOException {
+    File[] csvFiles = Utils.getAllOriginalCSVFiles();
+    for (File csvFile : csvFiles) {
+      String filename = Utils.getFileNamePrefix(csvFile);
+
+      File parquetTestFile = Utils.getParquetOutputFile(filename, "columnar", true);
+      ConvertUtils.convertCsvToParquet(csvFile, parquetTestFile);
+      File csvTestFile = Utils.getCsvTestFile(filename, "columnar", true);
+      ConvertUtils.convertParquetToCSVColumnar(parquetTestFile, csvTestFile);
+
+      Utils.verify(csvFile, csvTestFile);
+
+      parquetTestFile = Utils.getParquetOutputFile(filename, "columnar.dict", true);
+      ConvertUtils.convertCsvToParquet(csvFile, parquetTestFile, true);
+      csvTestFile = Utils.getCsvTestFile(filename, "columnar.dict", true);
+      ConvertUtils.convertParquetToCSVColumnar(parquetTestFile, csvTestFile);
+
+      Utils.verify(csvFile, csvTestFile);
+
+      csvTestFile = Utils.getCsvTestFile(filename, "lowlevel.dict", true);
+      ConvertUtils.convertParquetToCSVEx(parquetTestFile, csvTestFile);
+
+      Utils.verify(csvFile, csvTestFile);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TestCompatibilityMatrix {
+
+  @Test
+  public void testAllCellsRun() {
+    final AtomicInteger runs = new AtomicInteger();
+    CompatibilityMatrix matrix = new CompatibilityMatrix("test", 3);
+    for (int version = 0; version < 4; version++) {
+      for (int dataset = 0; dataset < 5; dataset++) {
+        final boolean failing = version == 1 && dataset == 2;
+        matrix.add("version" + version, "dataset" + dataset, new CompatibilityMatrix.Cell() {
+          @Override
+          public void run() throws IOException {
+            runs.incrementAndGet();
+            if (failing) {
+              throw new IOException("broken");
+            }
+          }
+        });
+      }
+    }
+    try {
+      matrix.run();
+      fail("a cell failed");
+    } catch (AssertionError e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("version1 x dataset2: java.io.IOException: broken"));
+      assertTrue(e.getCause() instanceof IOException);
+    }
+    assertEquals(20, runs.get());
+  }
+}
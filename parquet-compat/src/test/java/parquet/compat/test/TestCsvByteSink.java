@@ -0,0 +1,96 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestCsvByteSink {
+
+  private static final double[] DOUBLES = {
+    0.0, -0.0, 1.0, -1.0, 0.1, 0.2, 0.3, 0.001, 0.0009999, 1e-4, 711.56, -999.99, 9999.99,
+    3.141592653589793, 1.0 / 3, 2.0 / 3, 1e7, 9999999.999999, 1e7 - 1, 123456.789, 4.35, 0.1 + 0.2,
+    Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+  };
+
+  private static final long[] LONGS = {
+    0, 1, -1, 9, 10, -10, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1
+  };
+
+  @Test
+  public void testDoubles() throws IOException {
+    for (double value : DOUBLES) {
+      checkDouble(value);
+    }
+  }
+
+  @Test
+  public void testRandomDoubles() throws IOException {
+    Random random = new Random(42);
+    for (int i = 0; i < 100000; i++) {
+      long unscaled = random.nextLong() % (random.nextBoolean() ? 1000000 : 10000000000000000L);
+      checkDouble(unscaled / Math.pow(10, random.nextInt(12)));
+      checkDouble(random.nextDouble() * Math.pow(10, random.nextInt(10) - 3));
+      checkDouble(Double.longBitsToDouble(random.nextLong()));
+    }
+  }
+
+  @Test
+  public void testLongs() throws IOException {
+    for (long value : LONGS) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      CsvByteSink sink = new CsvByteSink(Channels.newChannel(out), 16);
+      sink.writeLong(value);
+      sink.writeDelimiter();
+      sink.writeInt((int) value);
+      sink.close();
+      assertEquals(value + "|" + (int) value, out.toString("UTF-8"));
+    }
+  }
+
+  @Test
+  public void testSmallBuffer() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CsvByteSink sink = new CsvByteSink(Channels.newChannel(out), 4);
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      byte[] bytes = ("field" + i).getBytes(CsvRecord.UTF8);
+      sink.write(bytes, 0, bytes.length);
+      sink.writeDelimiter();
+      sink.writeBoolean(i % 2 == 0);
+      sink.writeDelimiter();
+      sink.writeDouble(i / 7.0);
+      sink.writeNewLine();
+      expected.append("field").append(i).append('|').append(i % 2 == 0).append('|').append(i / 7.0).append('\n');
+    }
+    sink.close();
+    assertEquals(expected.toString(), out.toString("UTF-8"));
+  }
+
+  private static void checkDouble(double value) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CsvByteSink sink = new CsvByteSink(Channels.newChannel(out), 64);
+    sink.writeDouble(value);
+    sink.close();
+    assertEquals(Double.toString(value), out.toString("UTF-8"));
+  }
+}
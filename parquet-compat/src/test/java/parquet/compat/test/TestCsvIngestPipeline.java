@@ -0,0 +1,50 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class TestCsvIngestPipeline {
+
+  @Test
+  public void testConvert() throws IOException {
+    Metrics.getDefault().reset();
+    File[] csvFiles = Utils.getAllOriginalCSVFiles();
+    for (File csvFile : csvFiles) {
+      String filename = Utils.getFileNamePrefix(csvFile);
+
+      // small chunks so that parsers finish out of order
+      ConvertOptions options = new ConvertOptions().setThreads(3).setChunkSize(256);
+      File parquetTestFile = Utils.getParquetOutputFile(filename, "pipelined", true);
+      ConvertUtils.convertCsvToParquetPipelined(csvFile, parquetTestFile, options);
+      File csvTestFile = Utils.getCsvTestFile(filename, "pipelined", true);
+      ConvertUtils.convertParquetToCSV(parquetTestFile, csvTestFile);
+
+      Utils.verify(csvFile, csvTestFile);
+    }
+    Metrics.getDefault().writeJson(Metrics.getMetricsFile("pipeline"));
+
+    for (String queue : new String[] {"free", "parse", "write"}) {
+      Metrics.Histogram depth = Metrics.getDefault().histogram("pipeline." + queue + ".depth");
+      assertTrue(queue, depth.getCount() > 0);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class TestCsvTokenizer {
+
+  private static final String[] LINES = {
+    "0|ALGERIA|0| haggle. carefully final deposits detect slyly agai",
+    "1|ARGENTINA||al foxes promise slyly",
+    "2|BRAZIL|1|",
+    "3||",
+    "",
+    "4",
+    "|5",
+    "6|CANADA|1|été comment"
+  };
+
+  private static List<List<String>> tokenize(String csv, int bufferSize) throws IOException {
+    CsvTokenizer tokenizer = new CsvTokenizer(new ByteArrayInputStream(csv.getBytes("UTF-8")), Long.MAX_VALUE, bufferSize);
+    CsvRecord record = new CsvRecord();
+    List<List<String>> lines = new ArrayList<List<String>>();
+    while (tokenizer.next(record)) {
+      lines.add(new ArrayList<String>(record));
+    }
+    tokenizer.close();
+    return lines;
+  }
+
+  private static List<List<String>> split(String[] lines) {
+    List<List<String>> result = new ArrayList<List<String>>();
+    for (String line : lines) {
+      result.add(Arrays.asList(line.split(Pattern.quote(ConvertUtils.CSV_DELIMITER))));
+    }
+    return result;
+  }
+
+  private static String join(String[] lines, String separator, boolean trailing) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < lines.length; i++) {
+      sb.append(lines[i]);
+      if (trailing || i < lines.length - 1) {
+        sb.append(separator);
+      }
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testSameFieldsAsSplit() throws IOException {
+    List<List<String>> expected = split(LINES);
+    for (int bufferSize : new int[] {1, 2, 7, 64, CsvTokenizer.DEFAULT_BUFFER_SIZE}) {
+      assertEquals("buffer " + bufferSize, expected, tokenize(join(LINES, "\n", true), bufferSize));
+      assertEquals("buffer " + bufferSize, expected, tokenize(join(LINES, "\r\n", true), bufferSize));
+      assertEquals("buffer " + bufferSize, expected, tokenize(join(LINES, "\n", false), bufferSize));
+    }
+  }
+
+  @Test
+  public void testSlices() throws IOException {
+    CsvTokenizer tokenizer = new CsvTokenizer(new ByteArrayInputStream("ab|cde\n".getBytes("UTF-8")));
+    CsvRecord record = new CsvRecord();
+    assertTrue(tokenizer.next(record));
+    assertEquals(2, record.size());
+    assertEquals(0, record.getOffset(0));
+    assertEquals(2, record.getLength(0));
+    assertEquals(3, record.getOffset(1));
+    assertEquals(3, record.getLength(1));
+    assertEquals('c', record.getBuffer()[record.getOffset(1)]);
+    assertFalse(tokenizer.next(record));
+  }
+
+  @Test
+  public void testLength() throws IOException {
+    byte[] csv = "a|b\nc|d\ne|f\n".getBytes("UTF-8");
+    CsvTokenizer tokenizer = new CsvTokenizer(new ByteArrayInputStream(csv), 8);
+    CsvRecord record = new CsvRecord();
+    assertTrue(tokenizer.next(record));
+    assertEquals(Arrays.asList("a", "b"), record);
+    assertTrue(tokenizer.next(record));
+    assertEquals(Arrays.asList("c", "d"), record);
+    assertFalse(tokenizer.next(record));
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import parquet.schema.MessageType;
+import parquet.schema.MessageTypeParser;
+
+public class TestDictionaryPlanner {
+
+  private static final MessageType SCHEMA = MessageTypeParser.parseMessageType(
+      "message m { optional binary segment; required binary comment; required int32 key; }");
+
+  private static String csv(int rows) {
+    StringBuilder csv = new StringBuilder();
+    for (int i = 0; i < rows; i++) {
+      csv.append(i % 10 == 0 ? "" : "SEGMENT" + i % 5).append("|comment number ").append(i).append("|").append(i % 3)
+          .append("\n");
+    }
+    return csv.toString();
+  }
+
+  private static DictionaryPlanner plan(int rows, int pageSize, double minSavings) throws IOException {
+    DictionaryPlanner planner = new DictionaryPlanner(SCHEMA, rows, pageSize, minSavings);
+    byte[] bytes = csv(rows).getBytes("UTF-8");
+    CsvTokenizer tokenizer = new CsvTokenizer(bytes, 0, bytes.length);
+    CsvRecord record = new CsvRecord();
+    while (tokenizer.next(record)) {
+      planner.add(record);
+    }
+    return planner;
+  }
+
+  @Test
+  public void testHyperLogLog() {
+    HyperLogLog sketch = new HyperLogLog(12);
+    for (long i = 0; i < 100000; i++) {
+      sketch.add(i);
+    }
+    assertEquals(100000, sketch.estimate(), 5000);
+    sketch.clear();
+    for (int i = 0; i < 1000; i++) {
+      byte[] bytes = ("value" + i % 10).getBytes();
+      sketch.add(bytes, 0, bytes.length);
+    }
+    assertEquals(10, sketch.estimate());
+  }
+
+  @Test
+  public void testPlan() throws IOException {
+    DictionaryPlanner planner = plan(1000, 1024 * 1024, 0.1);
+    assertEquals(1000, planner.getRows());
+    assertEquals(Arrays.asList("segment"), planner.getDictionaryColumns());
+    assertTrue(planner.isEnableDictionary());
+    DictionaryPlanner.ColumnPlan segment = planner.getPlan().get(0);
+    assertEquals(900, segment.values);
+    assertEquals(5, segment.distinct);
+    assertFalse(planner.getPlan().get(1).isDictionary());
+    // low cardinality but not binary
+    assertFalse(planner.getPlan().get(2).isDictionary());
+  }
+
+  @Test
+  public void testMinSavings() throws IOException {
+    // the high cardinality comment column outweighs the segment column
+    DictionaryPlanner planner = plan(1000, 1024 * 1024, 0.5);
+    assertEquals(Arrays.asList("segment"), planner.getDictionaryColumns());
+    assertTrue(planner.getSavedBytes() > 0);
+    assertFalse(planner.isEnableDictionary());
+  }
+
+  @Test
+  public void testDictionaryLargerThanPage() throws IOException {
+    DictionaryPlanner planner = plan(1000, 50, 0.1);
+    assertEquals(Collections.<String>emptyList(), planner.getDictionaryColumns());
+    assertFalse(planner.isEnableDictionary());
+  }
+
+  @Test
+  public void testSample() throws IOException {
+    File csvFile = File.createTempFile("dictionary", ".csv");
+    csvFile.deleteOnExit();
+    FileUtils.writeStringToFile(csvFile, csv(1000));
+    DictionaryPlanner planner = DictionaryPlanner.sample(csvFile, SCHEMA,
+        new ConvertOptions().setMemoryMapped(false).setDictionarySampleRows(100));
+    assertEquals(100, planner.getRows());
+    assertEquals(Arrays.asList("segment"), planner.getDictionaryColumns());
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TestFooterAnalyzer {
+
+  private static final String DICT = "BIT_PACKED PLAIN_DICTIONARY RLE";
+  private static final String FALLBACK = "BIT_PACKED PLAIN PLAIN_DICTIONARY RLE";
+  private static final String PLAIN = "BIT_PACKED PLAIN RLE";
+
+  private static List<FooterAnalyzer.ChunkStats> report(String secondEncodings, long nameBytes) {
+    return Arrays.asList(
+        new FooterAnalyzer.ChunkStats("nation.parquet", 0, "name", "SNAPPY", DICT, 100, nameBytes, 2000),
+        new FooterAnalyzer.ChunkStats("nation.parquet", 1, "name", "SNAPPY", secondEncodings, 300, nameBytes, 2000),
+        new FooterAnalyzer.ChunkStats("nation.parquet", 0, "nation_key", "SNAPPY", PLAIN, 100, 400, 400),
+        new FooterAnalyzer.ChunkStats("nation.parquet", 1, "nation_key", "SNAPPY", PLAIN, 300, 1200, 1200));
+  }
+
+  @Test
+  public void testSummarize() {
+    Map<String, FooterAnalyzer.ColumnSummary> summaries = FooterAnalyzer.summarize(report(FALLBACK, 1000));
+    assertEquals(2, summaries.size());
+    FooterAnalyzer.ColumnSummary name = summaries.get("nation.parquet|name");
+    assertEquals(400, name.values);
+    assertEquals(2000, name.compressedBytes);
+    assertEquals(0.25, name.getDictionaryRatio(), 0.0001);
+    assertEquals(0, summaries.get("nation.parquet|nation_key").getDictionaryRatio(), 0.0001);
+  }
+
+  @Test
+  public void testDiff() {
+    assertTrue(FooterAnalyzer.diff(report(DICT, 1000), report(DICT, 1010), 0.05, 0.1).isEmpty());
+    List<String> differences = FooterAnalyzer.diff(report(DICT, 1000), report(FALLBACK, 1000), 0.05, 0.1);
+    assertEquals(differences.toString(), 1, differences.size());
+    assertTrue(differences.get(0), differences.get(0).startsWith("nation.parquet|name"));
+    differences = FooterAnalyzer.diff(report(DICT, 1000), report(DICT, 1200), 0.05, 0.1);
+    assertTrue(differences.get(0), differences.get(0).endsWith("(+20.0% bytes)"));
+  }
+
+  @Test
+  public void testReadWrite() throws IOException {
+    File file = File.createTempFile("footers", ".csv");
+    file.deleteOnExit();
+    List<FooterAnalyzer.ChunkStats> chunks = report(FALLBACK, 1000);
+    FooterAnalyzer.write(file, chunks);
+    List<FooterAnalyzer.ChunkStats> read = FooterAnalyzer.read(file);
+    assertEquals(chunks.size(), read.size());
+    assertTrue(FooterAnalyzer.diff(chunks, read, 0, 0).isEmpty());
+  }
+}
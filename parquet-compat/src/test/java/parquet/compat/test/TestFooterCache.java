@@ -0,0 +1,62 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+import parquet.hadoop.metadata.ParquetMetadata;
+
+public class TestFooterCache {
+
+  @Test
+  public void testHitsAndMisses() throws IOException {
+    File csvFile = new File("../parquet-testdata/tpch/nation.csv");
+    File plainFile = Utils.getParquetOutputFile("nation", "footer.plain", true);
+    ConvertUtils.convertCsvToParquet(csvFile, plainFile);
+    File dictFile = Utils.getParquetOutputFile("nation", "footer.dict", true);
+    ConvertUtils.convertCsvToParquet(csvFile, dictFile, true);
+    Configuration configuration = new Configuration();
+    Path plainPath = new Path(plainFile.toURI());
+    Path dictPath = new Path(dictFile.toURI());
+
+    FooterCache cache = new FooterCache(1);
+    ParquetMetadata footer = cache.readFooter(configuration, plainPath);
+    assertSame(footer, cache.readFooter(configuration, plainPath));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+
+    // a modified file is read again
+    plainFile.setLastModified(plainFile.lastModified() - 10000);
+    assertNotSame(footer, cache.readFooter(configuration, plainPath));
+    assertEquals(2, cache.getMisses());
+
+    // evicts the plain footer
+    cache.readFooter(configuration, dictPath);
+    cache.readFooter(configuration, plainPath);
+    assertEquals(1, cache.size());
+    assertEquals(4, cache.getMisses());
+    assertEquals(1, cache.getHits());
+  }
+}
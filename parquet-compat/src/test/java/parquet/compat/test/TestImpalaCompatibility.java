@@ -31,18 +31,27 @@ public class TestImpalaCompatibility {
     File[] originalCsvFiles = Utils.getAllOriginalCSVFiles();
     String[] impalaVersions = Utils.getImpalaDirectories();
     LOG.info("Testing compatibility in reading files written by impala");
+    CompatibilityMatrix matrix = new CompatibilityMatrix("impala compatibility");
 
-    for(String impalaVersion : impalaVersions) {
-      for(File originalCsv : originalCsvFiles) {
-        String prefix = Utils.getFileNamePrefix(originalCsv);
-        File parquetFile = null;
+    for(final String impalaVersion : impalaVersions) {
+      for(final File originalCsv : originalCsvFiles) {
+        final String prefix = Utils.getFileNamePrefix(originalCsv);
+        final File parquetFile;
         try {
         parquetFile = Utils.getParquetImpalaFile(prefix, impalaVersion);
         } catch (Exception e){continue;}
-        File csvOutputFile = Utils.getCsvTestFile(prefix, "impala", true);
-        ConvertUtils.convertParquetToCSV(parquetFile, csvOutputFile);
-        Utils.verify(originalCsv, csvOutputFile, false);
+        matrix.add(impalaVersion, prefix, new CompatibilityMatrix.Cell() {
+          @Override
+          public void run() throws IOException {
+            // one output per impala version as the cells run concurrently
+            File csvOutputFile = Utils.getCsvTestFile(prefix, "impala." + impalaVersion, true);
+            ConvertUtils.convertParquetToCSV(parquetFile, csvOutputFile);
+            Utils.verify(originalCsv, csvOutputFile, false);
+          }
+        });
       }
     }
+    matrix.run();
+    LOG.info(FooterCache.getDefault());
   }
 }
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestMappedFile {
+
+  private static File createFile(byte[] content) throws IOException {
+    File file = File.createTempFile("mapped", ".bin");
+    file.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(content);
+    } finally {
+      Utils.closeQuietly(out);
+    }
+    return file;
+  }
+
+  private static byte[] readAll(InputStream in, int chunkSize) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[chunkSize];
+    int read;
+    while ((read = in.read(buffer)) >= 0) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testRangesAcrossWindows() throws IOException {
+    byte[] content = new byte[1000];
+    new Random(42).nextBytes(content);
+    MappedFile mappedFile = new MappedFile(createFile(content), 64);
+    try {
+      assertEquals(content.length, mappedFile.length());
+      int[][] ranges = {{0, 1000}, {0, 0}, {10, 20}, {60, 70}, {64, 128}, {63, 999}, {999, 1000}, {1000, 1000}};
+      for (int[] range : ranges) {
+        byte[] expected = Arrays.copyOfRange(content, range[0], range[1]);
+        assertArrayEquals(expected, readAll(mappedFile.openStream(range[0], range[1]), 100));
+        assertArrayEquals(expected, readAll(mappedFile.openStream(range[0], range[1]), 7));
+      }
+      InputStream in = mappedFile.openStream(62, 66);
+      for (int i = 62; i < 66; i++) {
+        assertEquals(content[i] & 0xFF, in.read());
+      }
+      assertEquals(-1, in.read());
+    } finally {
+      mappedFile.close();
+    }
+  }
+
+  @Test
+  public void testTokenizeMapped() throws IOException {
+    String csv = "1|ALGERIA|0\n2|ARGENTINA|1\n3|BRAZIL|1\n";
+    InputStream in = MappedFile.open(createFile(csv.getBytes(CsvRecord.UTF8)));
+    CsvTokenizer tokenizer = new CsvTokenizer(in, Long.MAX_VALUE, 4);
+    StringBuilder lines = new StringBuilder();
+    try {
+      while (tokenizer.nextLine()) {
+        lines.append(new String(tokenizer.getBuffer(), tokenizer.getLineStart(), tokenizer.getLineLength(),
+            CsvRecord.UTF8)).append('\n');
+      }
+    } finally {
+      tokenizer.close();
+    }
+    assertEquals(csv, lines.toString());
+  }
+
+  @Test
+  public void testEmptyFile() throws IOException {
+    InputStream in = MappedFile.open(createFile(new byte[0]));
+    try {
+      assertEquals(-1, in.read());
+    } finally {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestMetrics {
+
+  @Test
+  public void testHistogram() {
+    Metrics.Histogram histogram = new Metrics.Histogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.update(i);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(500500, histogram.getSum());
+    assertEquals(1000, histogram.getMax());
+    // the upper bound of the power of two bucket holding the value
+    assertEquals(511, histogram.getPercentile(50));
+    assertEquals(1000, histogram.getPercentile(99));
+    assertEquals(0, new Metrics.Histogram().getPercentile(50));
+  }
+
+  @Test
+  public void testJson() {
+    Metrics metrics = new Metrics();
+    metrics.counter("rows").add(3);
+    metrics.counter("rows").add(4);
+    metrics.timer("decode").update(2000000, 10);
+    metrics.histogram("sizes").update(5);
+    metrics.setValue("encodings", "[PLAIN, \"RLE\"]");
+    String json = metrics.toJson();
+    assertTrue(json, json.contains("\"rows\": 7"));
+    assertTrue(json, json.contains("\"decode\": {\"samples\": 1, \"operations\": 10, \"total_ms\": 2.0"));
+    assertTrue(json, json.contains("\"sizes\": {\"count\": 1, \"sum\": 5, \"min\": 5, \"max\": 5"));
+    assertTrue(json, json.contains("\"encodings\": \"[PLAIN, \\\"RLE\\\"]\""));
+    metrics.reset();
+    assertFalse(metrics.toJson(), metrics.toJson().contains("rows"));
+  }
+}
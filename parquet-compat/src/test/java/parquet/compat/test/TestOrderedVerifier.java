@@ -0,0 +1,108 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestOrderedVerifier {
+
+  private static List<String> createLines(int count) {
+    List<String> lines = new ArrayList<String>();
+    for (int i = 0; i < count; i++) {
+      lines.add(i + "|NATION" + (i % 25) + "|" + (i % 7) + "|");
+    }
+    return lines;
+  }
+
+  private static File createFile(List<String> lines, String prefix, boolean lastNewLine) throws IOException {
+    File file = File.createTempFile("ordered", ".csv");
+    file.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      for (int i = 0; i < lines.size(); i++) {
+        out.write((prefix + lines.get(i)).getBytes(CsvRecord.UTF8));
+        if (lastNewLine || i < lines.size() - 1) {
+          out.write('\n');
+        }
+      }
+    } finally {
+      Utils.closeQuietly(out);
+    }
+    return file;
+  }
+
+  private static void assertDiffers(File expected, File output, String... messages) throws IOException {
+    try {
+      new OrderedVerifier(4, 3).verify(expected, output);
+    } catch (AssertionError e) {
+      for (String message : messages) {
+        assertTrue(e.getMessage(), e.getMessage().contains(message));
+      }
+      return;
+    }
+    fail("expected a mismatch");
+  }
+
+  @Test
+  public void testSame() throws IOException {
+    List<String> lines = createLines(10000);
+    File expected = createFile(lines, "", true);
+    new OrderedVerifier(4, 3).verify(expected, createFile(lines, "", true));
+    new OrderedVerifier(4, 3).verify(expected, createFile(lines, "", false));
+    new OrderedVerifier(4, 3).verify(expected, createFile(lines, "key\t", true));
+    new OrderedVerifier(1, 3).verify(expected, createFile(lines, "12\t", false));
+    List<String> empty = new ArrayList<String>();
+    new OrderedVerifier(4, 3).verify(createFile(empty, "", true), createFile(empty, "", true));
+  }
+
+  @Test
+  public void testMismatches() throws IOException {
+    List<String> lines = createLines(10000);
+    File expected = createFile(lines, "", true);
+
+    List<String> output = new ArrayList<String>(lines);
+    output.set(4999, "changed");
+    output.set(9999, "changed too");
+    assertDiffers(expected, createFile(output, "", true),
+        "line 5000 expected:<4999|NATION24|1|> but was:<changed>", "line 10000 expected:");
+    assertDiffers(expected, createFile(output, "key\t", true), "line 5000 expected:", "line 10000 expected:");
+
+    // only the first 3 are reported
+    output = new ArrayList<String>(lines);
+    output.remove(0);
+    try {
+      new OrderedVerifier(4, 3).verify(expected, createFile(output, "", true));
+      fail("expected a mismatch");
+    } catch (AssertionError e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("expected 10000 lines but was 9999"));
+      assertTrue(e.getMessage(), e.getMessage().contains("line 3 expected:<2|NATION2|2|> but was:<3|NATION3|3|>"));
+      assertTrue(e.getMessage(), !e.getMessage().contains("line 4 "));
+    }
+
+    output = new ArrayList<String>(lines);
+    output.add("extra");
+    assertDiffers(expected, createFile(output, "", true), "expected 10000 lines but was 10001");
+  }
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class TestParallelCsvConverter {
+
+  @Test
+  public void testConvert() throws IOException {
+    File[] csvFiles = Utils.getAllOriginalCSVFiles();
+    for (File csvFile : csvFiles) {
+      String filename = Utils.getFileNamePrefix(csvFile);
+
+      File parquetTestDir = Utils.getParquetOutputDir(filename, "parallel", true);
+      ConvertUtils.convertCsvToParquetParallel(csvFile, parquetTestDir, new ConvertOptions().setThreads(4).setMemoryManaged(true));
+      File csvTestFile = Utils.getCsvTestFile(filename, "parallel", true);
+      ConvertUtils.convertParquetToCSV(parquetTestDir, csvTestFile);
+
+      Utils.verify(csvFile, csvTestFile);
+    }
+  }
+}
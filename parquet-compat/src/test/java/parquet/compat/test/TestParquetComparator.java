@@ -0,0 +1,81 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import parquet.Log;
+
+public class TestParquetComparator {
+
+  private static final Log LOG = Log.getLog(TestParquetComparator.class);
+
+  @Test
+  public void testValueComparison() throws IOException {
+    File[] csvFiles = Utils.getAllOriginalCSVFiles();
+    ParquetComparator comparator = new ParquetComparator();
+    for (File csvFile : csvFiles) {
+      String filename = Utils.getFileNamePrefix(csvFile);
+
+      File plainParquetFile = Utils.getParquetOutputFile(filename, "compare.plain", true);
+      ConvertUtils.convertCsvToParquet(csvFile, plainParquetFile);
+      File dictParquetFile = Utils.getParquetOutputFile(filename, "compare.dict", true);
+      ConvertUtils.convertCsvToParquet(csvFile, dictParquetFile, true);
+
+      comparator.compareToCsv(csvFile, plainParquetFile);
+      comparator.compareToCsv(csvFile, dictParquetFile);
+      comparator.compare(plainParquetFile, dictParquetFile);
+
+      // the same csv without its first line
+      File changedCsvFile = new File("target/test/changed/" + csvFile.getName());
+      List<String> lines = FileUtils.readLines(csvFile, "UTF-8");
+      FileUtils.writeLines(changedCsvFile, "UTF-8", lines.subList(1, lines.size()), "\n");
+      FileUtils.copyFile(new File(csvFile.getParentFile(), filename + ".schema"),
+          new File(changedCsvFile.getParentFile(), filename + ".schema"));
+      boolean differs = false;
+      try {
+        comparator.compareToCsv(changedCsvFile, plainParquetFile);
+      } catch (AssertionError e) {
+        LOG.info(e.getMessage());
+        differs = true;
+      }
+      assertTrue(differs);
+    }
+  }
+
+  @Test
+  public void testEmptyDirectory() throws IOException {
+    File csvFile = Utils.getAllOriginalCSVFiles()[0];
+    File emptyDir = File.createTempFile("empty", ".parquet");
+    emptyDir.delete();
+    emptyDir.mkdirs();
+    emptyDir.deleteOnExit();
+    try {
+      new ParquetComparator().compareToCsv(csvFile, emptyDir);
+      fail("an empty directory has no parquet files");
+    } catch (IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("No parquet files in "));
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class TestParquetScan {
+
+  @Test
+  public void testProjectedExport() throws IOException {
+    File csvFile = Utils.createTpchFile(TpchGenerator.Table.CUSTOMER, 0.01);
+    // small row groups so that the predicate on the key skips most of them
+    File parquetTestFile = Utils.getParquetOutputFile("customer", "projected", true);
+    ConvertUtils.convertCsvToParquet(csvFile, parquetTestFile, new ConvertOptions().setBlockSize(16 * 1024));
+
+    File csvTestFile = Utils.getCsvTestFile("customer", "projected", true);
+    long bytesRead = ConvertUtils.convertParquetToCSV(parquetTestFile, csvTestFile,
+        Arrays.asList("cust_key", "name", "acctbal"),
+        Arrays.asList(ColumnPredicate.le("cust_key", 150L), ColumnPredicate.ne("mktsegment", "BUILDING")));
+    assertTrue(bytesRead + " bytes read", bytesRead < parquetTestFile.length() / 2);
+
+    List<String> expected = new ArrayList<String>();
+    for (String line : FileUtils.readLines(csvFile, "UTF-8")) {
+      String[] fields = line.split("\\|", -1);
+      if (Long.parseLong(fields[0]) <= 150 && !fields[6].equals("BUILDING")) {
+        expected.add(fields[0] + "|" + fields[1] + "|" + fields[5]);
+      }
+    }
+    File expectedCsvFile = Utils.getCsvTestFile("customer", "projected.expected", true);
+    FileUtils.writeLines(expectedCsvFile, "UTF-8", expected, "\n");
+    Utils.verify(expectedCsvFile, csvTestFile);
+  }
+
+  @Test
+  public void testNullPredicates() throws IOException {
+    File csvFile = new File("target/test/nulls/nulls.csv");
+    List<String> lines = new ArrayList<String>();
+    for (int i = 0; i < 1000; i++) {
+      lines.add(i + "|" + (i % 4 == 0 ? "" : String.valueOf(i)) + "|name" + i);
+    }
+    FileUtils.writeLines(csvFile, "UTF-8", lines, "\n");
+    FileUtils.writeStringToFile(ConvertUtils.getSchemaFile(csvFile),
+        "message nulls { required int64 key; optional int64 value; required binary name; }");
+    File parquetTestFile = Utils.getParquetOutputFile("nulls", "predicates", true);
+    ConvertUtils.convertCsvToParquet(csvFile, parquetTestFile);
+
+    List<List<ColumnPredicate>> predicates = Arrays.asList(
+        Arrays.asList(ColumnPredicate.isNull("value"), ColumnPredicate.le("key", 500L)),
+        Arrays.asList(ColumnPredicate.notNull("value"), ColumnPredicate.le("name", "name5")),
+        Arrays.asList(ColumnPredicate.le("name", "name5"), ColumnPredicate.notNull("value")));
+    for (int p = 0; p < predicates.size(); p++) {
+      File csvTestFile = Utils.getCsvTestFile("nulls", "predicates." + p, true);
+      ConvertUtils.convertParquetToCSV(parquetTestFile, csvTestFile, Arrays.asList("key", "value", "name"),
+          predicates.get(p));
+      List<String> expected = new ArrayList<String>();
+      for (int i = 0; i < 1000; i++) {
+        boolean isNull = i % 4 == 0;
+        if (p == 0 ? isNull && i <= 500 : !isNull && ("name" + i).compareTo("name5") <= 0) {
+          expected.add(lines.get(i));
+        }
+      }
+      File expectedCsvFile = Utils.getCsvTestFile("nulls", "predicates." + p + ".expected", true);
+      FileUtils.writeLines(expectedCsvFile, "UTF-8", expected, "\n");
+      Utils.verify(expectedCsvFile, csvTestFile);
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestPerfComparator {
+
+  private static PerfResult result(String version, long... millis) {
+    PerfResult result = new PerfResult(version, "write", "perf.1000", "plain", "UNCOMPRESSED");
+    for (long m : millis) {
+      result.addSample(new PerfResult.Sample(m, 1000, 2000, 500, 4000, 1, 10, 8000));
+    }
+    return result;
+  }
+
+  @Test
+  public void testSignificantSlowdownIsFlagged() {
+    PerfComparator comparator = new PerfComparator(0.05);
+    assertNotNull(comparator.compare(result("1.2.0", 1200, 1210, 1190, 1205), result("1.1.0", 1000, 1010, 990, 1005)));
+  }
+
+  @Test
+  public void testNoiseIsNotFlagged() {
+    PerfComparator comparator = new PerfComparator(0.05);
+    // 10% slower on average but the samples overlap
+    assertNull(comparator.compare(result("1.2.0", 800, 1400, 1100), result("1.1.0", 700, 1300, 1000)));
+  }
+
+  @Test
+  public void testSmallChangeIsNotFlagged() {
+    PerfComparator comparator = new PerfComparator(0.05);
+    assertNull(comparator.compare(result("1.2.0", 1020, 1021, 1019), result("1.1.0", 1000, 1001, 999)));
+  }
+
+  @Test
+  public void testSingleSample() {
+    PerfComparator comparator = new PerfComparator(0.1);
+    assertNull(comparator.compare(result("1.2.0", 1050), result("1.1.0", 1000)));
+    assertNotNull(comparator.compare(result("1.2.0", 1150), result("1.1.0", 1000)));
+  }
+
+  @Test
+  public void testWelchTest() {
+    assertTrue(PerfComparator.significant(new double[] {10, 11, 12}, new double[] {1, 2, 3}));
+    assertFalse(PerfComparator.significant(new double[] {1, 2, 3}, new double[] {10, 11, 12}));
+    assertFalse(PerfComparator.significant(new double[] {1, 5, 9}, new double[] {1, 4, 8}));
+  }
+
+  @Test
+  public void testReadWrite() throws IOException {
+    File file = new File("target/test/perfresults.test.csv");
+    file.delete();
+    PerfResult write = result("1.2.0", 1000, 1100);
+    PerfResults.write(file, Arrays.asList(write));
+    List<PerfResult> read = PerfResults.read(file);
+    assertEquals(1, read.size());
+    assertEquals(write.getKey(), read.get(0).getKey());
+    assertEquals("1.2.0", read.get(0).getVersion());
+    assertEquals(2, read.get(0).getSamples().size());
+    assertEquals(1100, read.get(0).getSamples().get(1).getElapsedMillis());
+    assertEquals(1000, read.get(0).getSamples().get(1).getRows());
+    assertEquals(8000, read.get(0).getSamples().get(1).getPeakHeapBytes());
+  }
+}
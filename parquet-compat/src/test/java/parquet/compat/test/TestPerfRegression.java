@@ -17,9 +17,14 @@ package parquet.compat.test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import org.junit.Assume;
 import org.junit.Test;
 
 import parquet.Log;
@@ -28,57 +33,129 @@ public class TestPerfRegression {
   private static final Log LOG = Log.getLog(TestPerfRegression.class);
   
   private static final int fileSizeMegs = 1000;
-  
+
+  // number of runs per measurement, the regression check is only a t-test with at least 2
+  private static final int samples = Integer.getInteger("perf.samples", 1);
+
+  // slowdowns smaller than this are not reported even when significant
+  private static final double maxSlowdown =
+      Double.parseDouble(System.getProperty("perf.maxSlowdown", "0.05"));
+
+  // footer changes smaller than these are not reported
+  private static final double maxFooterSizeChange =
+      Double.parseDouble(System.getProperty("footer.maxSizeChange", "0.05"));
+  private static final double maxFooterDictionaryRatioChange =
+      Double.parseDouble(System.getProperty("footer.maxDictionaryRatioChange", "0.1"));
+
   @Test
   public void testWritePerf() throws IOException {
     // With no dictionary - default
     File csvTestFile = Utils.createTestFile(fileSizeMegs);
     
-    File parquetTestFile = Utils.getParquetOutputFile("perf", String.valueOf(fileSizeMegs), true);
-    long startTime = System.currentTimeMillis();
-    ConvertUtils.convertCsvToParquet(csvTestFile, parquetTestFile);
-    long endTime = System.currentTimeMillis();
-    
-    long totalTime = (endTime - startTime);
-    LOG.info("Write Time: " + totalTime ); 
-    
-    Utils.writePerfResult("write", totalTime);
+    Metrics.getDefault().reset();
+    PerfResult result = newResult("write");
+    for (int i = 0; i < samples; i++) {
+      File parquetTestFile = Utils.getParquetOutputFile("perf", String.valueOf(fileSizeMegs), true);
+      PerfMeter meter = PerfMeter.start();
+      ConvertUtils.convertCsvToParquet(csvTestFile, parquetTestFile);
+      meter.stop();
+      PerfResult.Sample sample = meter.toSample(
+          Utils.getRowCount(parquetTestFile), csvTestFile.length(), parquetTestFile.length());
+      result.addSample(sample);
+      LOG.info("Write Time: " + sample.getElapsedMillis());
+    }
+    PerfResults.save(result);
+    Metrics.getDefault().writeJson(Metrics.getMetricsFile("write"));
     
-    LOG.info("Time taken to write " + fileSizeMegs + " sized csv file : " + fileSizeMegs);
+    LOG.info("Median time taken to write " + fileSizeMegs + "MB sized csv file : " + result.getMedianElapsedMillis());
     
-    assertTrue(totalTime < 60000);
+    assertTrue(result.getMedianElapsedMillis() < 60000);
     
     // It should not be slower than previous versions
-    for(String version : Utils.getAllPreviousVersionDirs()) {
-      long totalTimeForVersion = Utils.readPerfResult(version, "write");
-      LOG.info("Time taken to write with version "+ version + ": " + totalTimeForVersion);
-      assertTrue(totalTime < 1.1 * totalTimeForVersion);
-    }
+    assertNoRegression(result);
   }
   
   @Test
   public void testReadPerf() throws IOException {
-    File parquetTestFile = Utils.getParquetOutputFile("perf", String.valueOf(fileSizeMegs), false);
-    if(!parquetTestFile.exists()) {
-      throw new IOException("File "+ parquetTestFile.getName() + " does not exists, Run testWritePerf");
+    File parquetTestFile = ConvertUtils.convertCsvToParquetCached(
+        Utils.createTestFile(fileSizeMegs), new ConvertOptions());
+    long rows = Utils.getRowCount(parquetTestFile);
+
+    Metrics.getDefault().reset();
+    PerfResult result = newResult("read");
+    for (int i = 0; i < samples; i++) {
+      File csvTestFile = Utils.getCsvTestFile("perf", String.valueOf(fileSizeMegs), true);
+      PerfMeter meter = PerfMeter.start();
+      ConvertUtils.convertParquetToCSV(parquetTestFile, csvTestFile);
+      meter.stop();
+      PerfResult.Sample sample = meter.toSample(rows, parquetTestFile.length(), csvTestFile.length());
+      result.addSample(sample);
+      LOG.info("Read Time: " + sample.getElapsedMillis());
     }
-    File csvTestFile = Utils.getCsvTestFile("perf", String.valueOf(fileSizeMegs), true);
-    long startTime = System.currentTimeMillis();
-    ConvertUtils.convertParquetToCSV(parquetTestFile, csvTestFile );
-    long endTime = System.currentTimeMillis();
-    
-    long totalTime = (endTime - startTime);
-    LOG.info("Read Time: " + totalTime ); 
-    
-    Utils.writePerfResult("read", totalTime);
-    
-    assertTrue(totalTime < 45000);
+    PerfResults.save(result);
+    Metrics.getDefault().writeJson(Metrics.getMetricsFile("read"));
+
+    assertTrue(result.getMedianElapsedMillis() < 45000);
     
     // It should not be slower than previous versions
+    assertNoRegression(result);
+  }
+
+  /**
+   * Compares writer settings on the customer and orders tables,
+   * only when run with -Dperf.sweep=true, see {@link WriterSweep}.
+   */
+  @Test
+  public void testWriterSweep() throws IOException {
+    Assume.assumeTrue(Boolean.getBoolean("perf.sweep"));
+    double scaleFactor = Double.parseDouble(System.getProperty("sweep.scaleFactor", "1"));
+    WriterSweep sweep = WriterSweep.fromSystemProperties();
+    TpchGenerator.Table[] tables = {TpchGenerator.Table.CUSTOMER, TpchGenerator.Table.ORDERS};
+    for (TpchGenerator.Table table : tables) {
+      String dataset = table.name().toLowerCase() + "." + scaleFactor;
+      List<PerfResult> results = sweep.run(Utils.createTpchFile(table, scaleFactor), dataset);
+      assertFalse(results.isEmpty());
+    }
+  }
+
+  /**
+   * Reports the column chunks of the files written by this version and of the
+   * impala files, and logs how they differ from the files of previous versions.
+   */
+  @Test
+  public void testFooterReport() throws IOException {
+    List<FooterAnalyzer.ChunkStats> chunks = FooterAnalyzer.analyzeAll(new File("target/parquet"), "");
+    List<FooterAnalyzer.ChunkStats> report = new ArrayList<FooterAnalyzer.ChunkStats>(chunks);
+    report.addAll(FooterAnalyzer.analyzeAll(new File("../parquet-testdata/impala"), "impala/"));
+    FooterAnalyzer.write(FooterAnalyzer.getReportFile(), report);
+    LOG.info("Analyzed " + chunks.size() + " column chunks of target/parquet");
+
+    for (String version : Utils.getAllPreviousVersionDirs()) {
+      File previousReport = FooterAnalyzer.getReportFile(version);
+      if (!previousReport.exists()) {
+        LOG.warn("No footer report for " + version);
+        continue;
+      }
+      List<String> differences = FooterAnalyzer.diff(FooterAnalyzer.read(previousReport), chunks,
+          maxFooterSizeChange, maxFooterDictionaryRatioChange);
+      LOG.info(differences.size() + " columns differ from " + version);
+      for (String difference : differences) {
+        LOG.info(version + ": " + difference);
+      }
+    }
+  }
+
+  private static PerfResult newResult(String operation) throws IOException {
+    return new PerfResult(Utils.getCurrentVersion(), operation, "perf." + fileSizeMegs, "plain", "UNCOMPRESSED");
+  }
+
+  private static void assertNoRegression(PerfResult result) throws IOException {
+    PerfComparator comparator = new PerfComparator(maxSlowdown);
     for(String version : Utils.getAllPreviousVersionDirs()) {
-      long totalTimeForVersion = Utils.readPerfResult(version, "read");
-      LOG.info("Time taken to read with version "+ version + ": " + totalTimeForVersion);
-      assertTrue(totalTime < 1.1 * totalTimeForVersion);
+      List<PerfComparator.Regression> regressions = comparator.compare(
+          Collections.singletonList(result), PerfResults.readVersion(version));
+      LOG.info("Compared " + result.getKey() + " with version " + version + ": " + regressions);
+      assertTrue(regressions.toString(), regressions.isEmpty());
     }
   }
 
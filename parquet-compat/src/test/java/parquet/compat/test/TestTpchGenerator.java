@@ -0,0 +1,110 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import parquet.schema.MessageTypeParser;
+
+public class TestTpchGenerator {
+
+  private static File tempFile(String name) throws IOException {
+    File dir = File.createTempFile("tpch", "");
+    dir.delete();
+    dir.mkdirs();
+    dir.deleteOnExit();
+    File file = new File(dir, name + ".csv");
+    file.deleteOnExit();
+    ConvertUtils.getSchemaFile(file).deleteOnExit();
+    return file;
+  }
+
+  @Test
+  public void testSchemasMatchTestData() throws IOException {
+    TpchGenerator generator = new TpchGenerator();
+    String[] tables = {"customer", "nation"};
+    for (String table : tables) {
+      String schema = FileUtils.readFileToString(new File("../parquet-testdata/tpch/" + table + ".schema"));
+      assertEquals(MessageTypeParser.parseMessageType(schema),
+          generator.getSchema(TpchGenerator.Table.valueOf(table.toUpperCase())));
+    }
+  }
+
+  @Test
+  public void testDeterministic() throws IOException {
+    TpchGenerator generator = new TpchGenerator().setScaleFactor(0.1).setNullRatio(0.1);
+    for (TpchGenerator.Table table : TpchGenerator.Table.values()) {
+      File single = tempFile("single");
+      File parallel = tempFile("parallel");
+      long rows = generator.setThreads(1).writeCsv(table, single);
+      assertEquals(table.getRowCount(0.1), rows);
+      assertEquals(rows, generator.setThreads(4).writeCsv(table, parallel));
+      assertArrayEquals(table.toString(),
+          FileUtils.readFileToByteArray(single), FileUtils.readFileToByteArray(parallel));
+    }
+    File other = tempFile("other");
+    File seeded = tempFile("seeded");
+    generator.writeCsv(TpchGenerator.Table.SUPPLIER, other);
+    generator.setSeed(7).writeCsv(TpchGenerator.Table.SUPPLIER, seeded);
+    assertFalse(FileUtils.contentEquals(other, seeded));
+  }
+
+  @Test
+  public void testShape() throws IOException {
+    File file = tempFile("customer");
+    new TpchGenerator().setNullRatio(0.2).setCardinality(50).setStringLength(5, 10)
+        .writeCsv(TpchGenerator.Table.CUSTOMER, file, 1024 * 1024);
+    assertTrue(file.length() >= 1024 * 1024);
+    List<String> lines = FileUtils.readLines(file, "UTF-8");
+    int fields = 0;
+    int nulls = 0;
+    for (int i = 0; i < lines.size(); i++) {
+      String[] values = lines.get(i).split("\\|", -1);
+      assertEquals(lines.get(i), 8, values.length);
+      assertEquals(String.valueOf(i + 1), values[0]);
+      String comment = values[7];
+      assertTrue(comment, comment.length() >= 5 && comment.length() <= 10);
+      for (int j = 1; j < 7; j++) {
+        fields++;
+        if (values[j].isEmpty()) {
+          nulls++;
+        }
+      }
+    }
+    double ratio = (double) nulls / fields;
+    assertTrue(String.valueOf(ratio), ratio > 0.18 && ratio < 0.22);
+  }
+
+  @Test
+  public void testFixedTablesStopAtLastRow() throws IOException {
+    File file = tempFile("nation");
+    assertEquals(25, new TpchGenerator().writeCsv(TpchGenerator.Table.NATION, file, 1024 * 1024));
+    assertEquals(25, FileUtils.readLines(file, "UTF-8").size());
+    file = tempFile("region");
+    assertEquals(5, new TpchGenerator().writeCsv(TpchGenerator.Table.REGION, file, 1024 * 1024));
+    assertEquals(5, FileUtils.readLines(file, "UTF-8").size());
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestUnorderedVerifier {
+
+  private static List<String> createLines(int count) {
+    List<String> lines = new ArrayList<String>();
+    for (int i = 0; i < count; i++) {
+      lines.add(i + "|NATION" + (i % 25) + "|" + (i % 7) + "|");
+    }
+    // duplicates have to be counted
+    lines.add("0|NATION0|0|");
+    return lines;
+  }
+
+  private static File createFile(List<String> lines, String prefix) throws IOException {
+    File file = File.createTempFile("unordered", ".csv");
+    file.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      for (String line : lines) {
+        out.write((prefix + line + "\n").getBytes(CsvRecord.UTF8));
+      }
+    } finally {
+      Utils.closeQuietly(out);
+    }
+    return file;
+  }
+
+  private static void assertDiffers(UnorderedVerifier verifier, File expected, File output, String line)
+      throws IOException {
+    try {
+      verifier.verify(expected, output);
+    } catch (AssertionError e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(line));
+      return;
+    }
+    fail("expected a mismatch on " + line);
+  }
+
+  @Test
+  public void testShuffled() throws IOException {
+    List<String> lines = createLines(1000);
+    File expected = createFile(lines, "");
+    Collections.shuffle(lines, new Random(42));
+    File output = createFile(lines, "key\t");
+    new UnorderedVerifier().verify(expected, output);
+    // spills once the table holds more than 100 hashes
+    new UnorderedVerifier(100).verify(expected, output);
+  }
+
+  @Test
+  public void testMismatches() throws IOException {
+    List<String> lines = createLines(1000);
+    File expected = createFile(lines, "");
+    for (UnorderedVerifier verifier : new UnorderedVerifier[] {new UnorderedVerifier(), new UnorderedVerifier(100)}) {
+      List<String> output = new ArrayList<String>(lines);
+      output.remove(lines.size() - 1);
+      assertDiffers(verifier, expected, createFile(output, ""), "0|NATION0|0|\" is missing 1 time(s)");
+
+      output = new ArrayList<String>(lines);
+      output.set(500, "500|CHANGED|3|");
+      Collections.shuffle(output, new Random(42));
+      File outputFile = createFile(output, "");
+      assertDiffers(verifier, expected, outputFile, "500|CHANGED|3|\" is extra 1 time(s)");
+      assertDiffers(verifier, expected, outputFile, "line 501 of " + expected.getName() + " \"500|NATION0|3|\" is missing");
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.Path;
+import org.junit.Test;
+
+public class TestWriterMemoryManager {
+
+  private static final int MB = 1024 * 1024;
+
+  @Test
+  public void testScaledWhenOverBudget() {
+    Metrics.getDefault().reset();
+    WriterMemoryManager manager = new WriterMemoryManager(100 * MB, MB);
+    WriterMemoryManager.Allocation first = manager.allocate("first", 64 * MB);
+    assertEquals(64 * MB, first.getBlockSize());
+    WriterMemoryManager.Allocation second = manager.allocate("second", 64 * MB);
+    assertEquals(36 * MB, second.getBlockSize());
+    assertEquals(100 * MB, manager.getAllocated());
+    assertEquals(2, manager.getOpenWriters());
+
+    first.release();
+    first.release();
+    assertEquals(36 * MB, manager.getAllocated());
+    WriterMemoryManager.Allocation third = manager.allocate("third", 32 * MB);
+    assertEquals(32 * MB, third.getBlockSize());
+    second.release();
+    third.release();
+    assertEquals(0, manager.getAllocated());
+    assertEquals(0, manager.getOpenWriters());
+    assertEquals(100 * MB, manager.getPeakAllocated());
+
+    assertEquals(1, Metrics.getDefault().counter("memory.scaled_writers").get());
+    assertEquals(28 * MB, Metrics.getDefault().counter("memory.scaled_bytes").get());
+    assertEquals(3, Metrics.getDefault().histogram("memory.block_size").getCount());
+  }
+
+  @Test
+  public void testMinBlockSize() {
+    WriterMemoryManager manager = new WriterMemoryManager(10 * MB, MB);
+    assertEquals(10 * MB, manager.allocate("first", 64 * MB).getBlockSize());
+    assertEquals(MB, manager.allocate("second", 64 * MB).getBlockSize());
+    for (int i = 0; i < 10; i++) {
+      manager.allocate("writer" + i, 64 * MB);
+    }
+    assertEquals(MB, manager.allocate("last", 64 * MB).getBlockSize());
+    assertEquals(MB / 2, manager.allocate("small", MB / 2).getBlockSize());
+  }
+
+  @Test
+  public void testReleasedWhenWriterFails() throws IOException {
+    WriterMemoryManager manager = WriterMemoryManager.getDefault();
+    int openWriters = manager.getOpenWriters();
+    long allocated = manager.getAllocated();
+    try {
+      WriterMemoryManager.open(new Path("target/test/failed.parquet"), new ConvertOptions().setMemoryManaged(true),
+          new WriterMemoryManager.WriterFactory<Object>() {
+            @Override
+            public Object create(WriterMemoryManager.Allocation allocation) throws IOException {
+              throw new IOException("failed");
+            }
+          });
+      fail("writer should fail");
+    } catch (IOException e) {
+      assertEquals("failed", e.getMessage());
+    }
+    assertEquals(openWriters, manager.getOpenWriters());
+    assertEquals(allocated, manager.getAllocated());
+  }
+}
@@ -0,0 +1,639 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.Path;
+
+import parquet.Log;
+import parquet.schema.MessageType;
+import parquet.schema.MessageTypeParser;
+import parquet.schema.PrimitiveType.PrimitiveTypeName;
+
+/**
+ * Generates TPC-H like tables, with the schemas of parquet-testdata/tpch,
+ * as csv or straight into parquet.
+ * The values of a row only depend on the seed, the table and the row number,
+ * so the output is the same whatever the number of threads generating it.
+ * Text columns are made of words drawn from a vocabulary of cardinality
+ * words, with lengths uniformly distributed between the bounds of the column
+ * or the ones set with {@link #setStringLength(int, int)}. Columns other
+ * than the first and the last one are null with probability nullRatio, the
+ * last one is never null as csv lines would lose their trailing empty field.
+ */
+public class TpchGenerator {
+
+  private static final Log LOG = Log.getLog(TpchGenerator.class);
+
+  /**
+   * Changes whenever the generated data changes, for cache keys.
+   */
+  public static final int VERSION = 1;
+
+  private static final int CHUNK_ROWS = 16 * 1024;
+
+  private static final String[] REGIONS = {"AFRICA", "AMERICA", "ASIA", "EUROPE", "MIDDLE EAST"};
+  private static final String[] NATIONS = {
+    "ALGERIA", "ARGENTINA", "BRAZIL", "CANADA", "EGYPT", "ETHIOPIA", "FRANCE", "GERMANY", "INDIA",
+    "INDONESIA", "IRAN", "IRAQ", "JAPAN", "JORDAN", "KENYA", "MOROCCO", "MOZAMBIQUE", "PERU", "CHINA",
+    "ROMANIA", "SAUDI ARABIA", "VIETNAM", "RUSSIA", "UNITED KINGDOM", "UNITED STATES"
+  };
+  private static final int[] NATION_REGIONS = {0, 1, 1, 1, 4, 0, 3, 3, 2, 2, 4, 4, 2, 4, 0, 0, 0, 1, 2, 3, 4, 2, 3, 3, 1};
+  private static final String[] SEGMENTS = {"AUTOMOBILE", "BUILDING", "FURNITURE", "HOUSEHOLD", "MACHINERY"};
+  private static final String[] ORDER_STATUSES = {"F", "O", "P"};
+  private static final String[] PRIORITIES = {"1-URGENT", "2-HIGH", "3-MEDIUM", "4-NOT SPECIFIED", "5-LOW"};
+
+  public enum Table {
+    REGION(5, false),
+    NATION(25, false),
+    SUPPLIER(10000, true),
+    CUSTOMER(150000, true),
+    ORDERS(1500000, true);
+
+    private final long baseRows;
+    private final boolean scaled;
+
+    private Table(long baseRows, boolean scaled) {
+      this.baseRows = baseRows;
+      this.scaled = scaled;
+    }
+
+    public long getRowCount(double scaleFactor) {
+      return scaled ? Math.max(1, (long) (baseRows * scaleFactor)) : baseRows;
+    }
+
+    /**
+     * @return whether the row count grows with the scale factor, the fixed tables
+     * have one row per region or nation
+     */
+    public boolean isScaled() {
+      return scaled;
+    }
+  }
+
+  private long seed = 42;
+  private double scaleFactor = 1;
+  private double nullRatio = 0;
+  private int cardinality = 10000;
+  private int minStringLength = -1;
+  private int maxStringLength = -1;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private byte[][] words;
+
+  public TpchGenerator setSeed(long seed) {
+    this.seed = seed;
+    this.words = null;
+    return this;
+  }
+
+  /**
+   * @param scaleFactor 1 gives the 150000 customers of TPC-H scale factor 1
+   */
+  public TpchGenerator setScaleFactor(double scaleFactor) {
+    this.scaleFactor = scaleFactor;
+    return this;
+  }
+
+  public TpchGenerator setNullRatio(double nullRatio) {
+    this.nullRatio = nullRatio;
+    return this;
+  }
+
+  /**
+   * @param cardinality number of distinct words of text columns
+   */
+  public TpchGenerator setCardinality(int cardinality) {
+    this.cardinality = cardinality;
+    this.words = null;
+    return this;
+  }
+
+  /**
+   * Overrides the length bounds of all text columns.
+   */
+  public TpchGenerator setStringLength(int min, int max) {
+    this.minStringLength = min;
+    this.maxStringLength = max;
+    return this;
+  }
+
+  public TpchGenerator setThreads(int threads) {
+    this.threads = threads;
+    return this;
+  }
+
+  public MessageType getSchema(Table table) {
+    StringBuilder schema = new StringBuilder("message m {\n");
+    for (Column column : getColumns(table)) {
+      schema.append("  optional ").append(column.type.name().toLowerCase())
+          .append(' ').append(column.name).append(";\n");
+    }
+    return MessageTypeParser.parseMessageType(schema.append("}\n").toString());
+  }
+
+  /**
+   * Adds the rows from firstRow to batch, which must have the schema of the table.
+   */
+  public void fill(Table table, long firstRow, int rows, ColumnBatch batch) {
+    Column[] columns = getColumns(table);
+    RowContext context = new RowContext(getWords());
+    for (long row = firstRow; row < firstRow + rows; row++) {
+      int index = batch.addRow();
+      context.random.reset(seed, table.ordinal(), row);
+      for (int i = 0; i < columns.length; i++) {
+        ColumnVector vector = batch.getVector(i);
+        if (i > 0 && i < columns.length - 1 && context.random.nextDouble() < nullRatio) {
+          vector.setNull(index);
+        } else {
+          columns[i].generate(context, row, vector, index);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the rows of the table at the scale factor, and its schema next to it.
+   * @return the number of rows written
+   */
+  public long writeCsv(Table table, File csvFile) throws IOException {
+    return writeCsv(table, csvFile, table.getRowCount(scaleFactor), Long.MAX_VALUE);
+  }
+
+  /**
+   * Writes rows of the table until the file is at least minBytes long,
+   * and its schema next to it. Tables that aren't scaled stop at their last row.
+   * @return the number of rows written
+   */
+  public long writeCsv(Table table, File csvFile, long minBytes) throws IOException {
+    long maxRows = table.isScaled() ? Long.MAX_VALUE : table.getRowCount(scaleFactor);
+    return writeCsv(table, csvFile, maxRows, minBytes);
+  }
+
+  private long writeCsv(final Table table, File csvFile, long maxRows, long minBytes) throws IOException {
+    LOG.info("Generating " + table + " into " + csvFile.getName() + " with " + this);
+    final MessageType schema = getSchema(table);
+    FileUtils.writeStringToFile(ConvertUtils.getSchemaFile(csvFile), schema.toString(), "UTF-8");
+    FileOutputStream out = new FileOutputStream(csvFile);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    LinkedList<Future<ByteArrayOutputStream>> inFlight = new LinkedList<Future<ByteArrayOutputStream>>();
+    try {
+      long nextRow = 0;
+      long rows = 0;
+      long bytes = 0;
+      while (bytes < minBytes && (nextRow < maxRows || !inFlight.isEmpty())) {
+        while (nextRow < maxRows && inFlight.size() < 2 * threads) {
+          final long firstRow = nextRow;
+          final int chunkRows = (int) Math.min(CHUNK_ROWS, maxRows - nextRow);
+          inFlight.add(executor.submit(new Callable<ByteArrayOutputStream>() {
+            @Override
+            public ByteArrayOutputStream call() throws IOException {
+              ColumnBatch batch = new ColumnBatch(schema, chunkRows);
+              fill(table, firstRow, chunkRows, batch);
+              ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+              CsvByteSink sink = new CsvByteSink(Channels.newChannel(chunk), 64 * 1024);
+              ConvertUtils.writeBatch(sink, batch);
+              sink.close();
+              return chunk;
+            }
+          }));
+          nextRow += chunkRows;
+        }
+        ByteArrayOutputStream chunk = get(inFlight.removeFirst());
+        chunk.writeTo(out);
+        bytes += chunk.size();
+        rows += Math.min(CHUNK_ROWS, maxRows - rows);
+      }
+      return rows;
+    } finally {
+      executor.shutdownNow();
+      Utils.closeQuietly(out);
+    }
+  }
+
+  /**
+   * Writes the rows of the table at the scale factor straight into a parquet file.
+   * @return the number of rows written
+   */
+  public long writeParquet(final Table table, File parquetFile, ConvertOptions options) throws IOException {
+    LOG.info("Generating " + table + " into " + parquetFile.getName() + " with " + this);
+    final MessageType schema = getSchema(table);
+    long rowCount = table.getRowCount(scaleFactor);
+    ColumnBatchParquetWriter writer = ColumnBatchParquetWriter.open(new Path(parquetFile.toURI()), schema, options);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    LinkedList<Future<ColumnBatch>> inFlight = new LinkedList<Future<ColumnBatch>>();
+    try {
+      long nextRow = 0;
+      while (nextRow < rowCount || !inFlight.isEmpty()) {
+        while (nextRow < rowCount && inFlight.size() < 2 * threads) {
+          final long firstRow = nextRow;
+          final int chunkRows = (int) Math.min(CHUNK_ROWS, rowCount - nextRow);
+          inFlight.add(executor.submit(new Callable<ColumnBatch>() {
+            @Override
+            public ColumnBatch call() {
+              ColumnBatch batch = new ColumnBatch(schema, chunkRows);
+              fill(table, firstRow, chunkRows, batch);
+              return batch;
+            }
+          }));
+          nextRow += chunkRows;
+        }
+        writer.writeBatch(get(inFlight.removeFirst()));
+      }
+      writer.close();
+      return rowCount;
+    } finally {
+      Utils.closeQuietly(writer);
+      executor.shutdownNow();
+    }
+  }
+
+  private synchronized byte[][] getWords() {
+    if (words == null) {
+      words = new byte[cardinality][];
+      Random64 random = new Random64();
+      for (int i = 0; i < cardinality; i++) {
+        random.reset(seed, -1, i);
+        byte[] word = new byte[2 + random.nextInt(9)];
+        for (int j = 0; j < word.length; j++) {
+          word[j] = (byte) ('a' + random.nextInt(26));
+        }
+        words[i] = word;
+      }
+    }
+    return words;
+  }
+
+  private Column[] getColumns(Table table) {
+    long customers = Table.CUSTOMER.getRowCount(scaleFactor);
+    int clerks = (int) Math.max(1, 1000 * scaleFactor);
+    switch (table) {
+    case REGION:
+      return new Column[] {
+          new KeyColumn("region_key", PrimitiveTypeName.INT32),
+          new ChoiceColumn("name", REGIONS, true),
+          text("comment_col", 31, 115)};
+    case NATION:
+      return new Column[] {
+          new KeyColumn("nation_key", PrimitiveTypeName.INT32),
+          new ChoiceColumn("name", NATIONS, true),
+          new NationRegionColumn(),
+          text("comment_col", 31, 114)};
+    case SUPPLIER:
+      return new Column[] {
+          new KeyColumn("supp_key", PrimitiveTypeName.INT64),
+          new NumberedColumn("name", "Supplier#", 0),
+          text("address", 10, 40),
+          new RangeColumn("nation_key", PrimitiveTypeName.INT32, 0, NATIONS.length),
+          new PhoneColumn(),
+          new MoneyColumn("acctbal", -99999, 999999),
+          text("comment_col", 25, 100)};
+    case CUSTOMER:
+      return new Column[] {
+          new KeyColumn("cust_key", PrimitiveTypeName.INT64),
+          new NumberedColumn("name", "Customer#", 0),
+          text("address", 10, 40),
+          new RangeColumn("nation_key", PrimitiveTypeName.INT32, 0, NATIONS.length),
+          new PhoneColumn(),
+          new MoneyColumn("acctbal", -99999, 999999),
+          new ChoiceColumn("mktsegment", SEGMENTS, false),
+          text("comment_col", 29, 116)};
+    case ORDERS:
+      return new Column[] {
+          new KeyColumn("order_key", PrimitiveTypeName.INT64),
+          new RangeColumn("cust_key", PrimitiveTypeName.INT64, 1, customers + 1),
+          new ChoiceColumn("order_status", ORDER_STATUSES, false),
+          new MoneyColumn("total_price", 85700, 55558600),
+          new DateColumn("order_date"),
+          new ChoiceColumn("order_priority", PRIORITIES, false),
+          new NumberedColumn("clerk", "Clerk#", clerks),
+          new RangeColumn("ship_priority", PrimitiveTypeName.INT32, 0, 1),
+          text("comment_col", 19, 78)};
+    default:
+      throw new IllegalArgumentException("Unknown table " + table);
+    }
+  }
+
+  private TextColumn text(String name, int min, int max) {
+    return minStringLength >= 0 ? new TextColumn(name, minStringLength, maxStringLength)
+        : new TextColumn(name, min, max);
+  }
+
+  @Override
+  public String toString() {
+    return "seed=" + seed + " scaleFactor=" + scaleFactor + " nullRatio=" + nullRatio
+        + " cardinality=" + cardinality
+        + (minStringLength >= 0 ? " stringLength=" + minStringLength + ".." + maxStringLength : "");
+  }
+
+  private static <T> T get(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while generating", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * splitmix64, reseeded for every row.
+   */
+  static final class Random64 {
+    private long state;
+
+    void reset(long seed, int table, long row) {
+      state = seed * 0x9E3779B97F4A7C15L + table;
+      state = nextLong() ^ row;
+    }
+
+    long nextLong() {
+      long z = (state += 0x9E3779B97F4A7C15L);
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      return z ^ (z >>> 31);
+    }
+
+    long nextLong(long bound) {
+      return (nextLong() >>> 1) % bound;
+    }
+
+    int nextInt(int bound) {
+      return (int) nextLong(bound);
+    }
+
+    double nextDouble() {
+      return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+  }
+
+  private static final class RowContext {
+    final Random64 random = new Random64();
+    final byte[][] words;
+    byte[] scratch = new byte[256];
+
+    RowContext(byte[][] words) {
+      this.words = words;
+    }
+  }
+
+  private abstract static class Column {
+    final String name;
+    final PrimitiveTypeName type;
+
+    Column(String name, PrimitiveTypeName type) {
+      this.name = name;
+      this.type = type;
+    }
+
+    abstract void generate(RowContext context, long row, ColumnVector vector, int index);
+  }
+
+  private static class KeyColumn extends Column {
+    KeyColumn(String name, PrimitiveTypeName type) {
+      super(name, type);
+    }
+
+    @Override
+    void generate(RowContext context, long row, ColumnVector vector, int index) {
+      if (type == PrimitiveTypeName.INT32) {
+        vector.setInt(index, (int) row);
+      } else {
+        vector.setLong(index, row + 1);
+      }
+    }
+  }
+
+  private static class RangeColumn extends Column {
+    private final long min;
+    private final long max;
+
+    // from min inclusive to max exclusive
+    RangeColumn(String name, PrimitiveTypeName type, long min, long max) {
+      super(name, type);
+      this.min = min;
+      this.max = max;
+    }
+
+    @Override
+    void generate(RowContext context, long row, ColumnVector vector, int index) {
+      long value = min + context.random.nextLong(max - min);
+      if (type == PrimitiveTypeName.INT32) {
+        vector.setInt(index, (int) value);
+      } else {
+        vector.setLong(index, value);
+      }
+    }
+  }
+
+  private static class NationRegionColumn extends Column {
+    NationRegionColumn() {
+      super("region_key", PrimitiveTypeName.INT32);
+    }
+
+    @Override
+    void generate(RowContext context, long row, ColumnVector vector, int index) {
+      vector.setInt(index, NATION_REGIONS[(int) row]);
+    }
+  }
+
+  private static class MoneyColumn extends Column {
+    private final long minCents;
+    private final long maxCents;
+
+    MoneyColumn(String name, long minCents, long maxCents) {
+      super(name, PrimitiveTypeName.DOUBLE);
+      this.minCents = minCents;
+      this.maxCents = maxCents;
+    }
+
+    @Override
+    void generate(RowContext context, long row, ColumnVector vector, int index) {
+      vector.setDouble(index, (minCents + context.random.nextLong(maxCents - minCents + 1)) / 100.0);
+    }
+  }
+
+  private static class ChoiceColumn extends Column {
+    private final byte[][] values;
+    private final boolean byRow;
+
+    /**
+     * @param byRow whether row i takes the value i instead of a random one
+     */
+    ChoiceColumn(String name, String[] values, boolean byRow) {
+      super(name, PrimitiveTypeName.BINARY);
+      this.values = new byte[values.length][];
+      for (int i = 0; i < values.length; i++) {
+        this.values[i] = values[i].getBytes(CsvRecord.UTF8);
+      }
+      this.byRow = byRow;
+    }
+
+    @Override
+    void generate(RowContext context, long row, ColumnVector vector, int index) {
+      byte[] value = values[byRow ? (int) row : context.random.nextInt(values.length)];
+      vector.setBinary(index, value, 0, value.length);
+    }
+  }
+
+  /**
+   * prefix followed by a 9 digits number, the row number or a random one up to count.
+   */
+  private static class NumberedColumn extends Column {
+    private final byte[] prefix;
+    private final int count;
+
+    NumberedColumn(String name, String prefix, int count) {
+      super(name, PrimitiveTypeName.BINARY);
+      this.prefix = prefix.getBytes(CsvRecord.UTF8);
+      this.count = count;
+    }
+
+    @Override
+    void generate(RowContext context, long row, ColumnVector vector, int index) {
+      byte[] scratch = context.scratch;
+      System.arraycopy(prefix, 0, scratch, 0, prefix.length);
+      long number = count > 0 ? 1 + context.random.nextInt(count) : row + 1;
+      int length = prefix.length + 9;
+      for (int i = length - 1; i >= prefix.length; i--) {
+        scratch[i] = (byte) ('0' + number % 10);
+        number /= 10;
+      }
+      vector.setBinary(index, scratch, 0, length);
+    }
+  }
+
+  private static class PhoneColumn extends Column {
+    PhoneColumn() {
+      super("phone", PrimitiveTypeName.BINARY);
+    }
+
+    @Override
+    void generate(RowContext context, long row, ColumnVector vector, int index) {
+      byte[] scratch = context.scratch;
+      int length = 0;
+      int countryCode = 10 + context.random.nextInt(NATIONS.length);
+      scratch[length++] = (byte) ('0' + countryCode / 10);
+      scratch[length++] = (byte) ('0' + countryCode % 10);
+      int[] groups = {3, 3, 4};
+      for (int group : groups) {
+        scratch[length++] = '-';
+        for (int i = 0; i < group; i++) {
+          scratch[length++] = (byte) ('0' + context.random.nextInt(10));
+        }
+      }
+      vector.setBinary(index, scratch, 0, length);
+    }
+  }
+
+  /**
+   * yyyy-mm-dd between 1992-01-01 and 1998-08-02.
+   */
+  private static class DateColumn extends Column {
+    private static final int FIRST_DAY = 8035;
+    private static final int DAYS = 2405;
+
+    DateColumn(String name) {
+      super(name, PrimitiveTypeName.BINARY);
+    }
+
+    @Override
+    void generate(RowContext context, long row, ColumnVector vector, int index) {
+      // days since 1970-01-01 to a civil date
+      int z = FIRST_DAY + context.random.nextInt(DAYS) + 719468;
+      int era = z / 146097;
+      int dayOfEra = z - era * 146097;
+      int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+      int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+      int mp = (5 * dayOfYear + 2) / 153;
+      int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+      int month = mp < 10 ? mp + 3 : mp - 9;
+      int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+      byte[] scratch = context.scratch;
+      scratch[0] = (byte) ('0' + year / 1000);
+      scratch[1] = (byte) ('0' + year / 100 % 10);
+      scratch[2] = (byte) ('0' + year / 10 % 10);
+      scratch[3] = (byte) ('0' + year % 10);
+      scratch[4] = '-';
+      scratch[5] = (byte) ('0' + month / 10);
+      scratch[6] = (byte) ('0' + month % 10);
+      scratch[7] = '-';
+      scratch[8] = (byte) ('0' + day / 10);
+      scratch[9] = (byte) ('0' + day % 10);
+      vector.setBinary(index, scratch, 0, 10);
+    }
+  }
+
+  /**
+   * Words separated by spaces, at least one character long.
+   */
+  private static class TextColumn extends Column {
+    private final int min;
+    private final int max;
+
+    TextColumn(String name, int min, int max) {
+      super(name, PrimitiveTypeName.BINARY);
+      this.min = Math.max(1, min);
+      this.max = Math.max(this.min, max);
+    }
+
+    @Override
+    void generate(RowContext context, long row, ColumnVector vector, int index) {
+      int length = min + context.random.nextInt(max - min + 1);
+      if (context.scratch.length < length) {
+        context.scratch = new byte[length];
+      }
+      byte[] scratch = context.scratch;
+      int position = 0;
+      while (position < length) {
+        if (position > 0) {
+          scratch[position++] = ' ';
+        }
+        byte[] word = context.words[context.random.nextInt(context.words.length)];
+        int copied = Math.min(word.length, length - position);
+        System.arraycopy(word, 0, scratch, position, copied);
+        position += copied;
+      }
+      // a space can't be last as trailing spaces would be lost by some readers
+      if (scratch[length - 1] == ' ') {
+        scratch[length - 1] = 'x';
+      }
+      vector.setBinary(index, scratch, 0, length);
+    }
+  }
+}
@@ -0,0 +1,307 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import static org.junit.Assert.fail;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Checks that two csv files have the same lines regardless of their order,
+ * streaming both files without keeping their lines in memory.
+ * Every line is reduced to a 64 bit hash counted up for the expected file
+ * and down for the output file, lines whose count doesn't come back to 0
+ * are reported. When there are more distinct lines than fit in memory the
+ * counts are spilled to temporary files partitioned by hash, and each
+ * partition is summed up on its own.
+ * As with {@link Utils#verify(File, File)} anything up to the first tab of
+ * an output line is ignored.
+ */
+public class UnorderedVerifier {
+
+  static final int PARTITIONS = 16;
+  private static final int MAX_REPORTED = 10;
+
+  private final int maxEntries;
+  private final LineCounts counts = new LineCounts();
+  private File[] spillFiles;
+  private DataOutputStream[] spills;
+
+  public UnorderedVerifier() {
+    // 12 bytes per entry in a table at most half full
+    this((int) Math.min(1 << 24, Runtime.getRuntime().maxMemory() / 96));
+  }
+
+  /**
+   * @param maxEntries number of distinct line hashes kept in memory before spilling
+   */
+  UnorderedVerifier(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+
+  public void verify(File expectedCsvFile, File outputCsvFile) throws IOException {
+    counts.clear();
+    try {
+      count(expectedCsvFile, false, 1);
+      count(outputCsvFile, true, -1);
+      Map<Long, Integer> mismatches = new LinkedHashMap<Long, Integer>();
+      long mismatchCount = findMismatches(mismatches);
+      if (mismatchCount > 0) {
+        fail(describe(expectedCsvFile, outputCsvFile, mismatches, mismatchCount));
+      }
+    } finally {
+      deleteSpills();
+    }
+  }
+
+  private void count(File csvFile, boolean output, int delta) throws IOException {
+    CsvTokenizer tokenizer = new CsvTokenizer(MappedFile.open(csvFile));
+    try {
+      while (tokenizer.nextLine()) {
+        counts.add(hash(tokenizer, output), delta);
+        if (counts.size() > maxEntries) {
+          spill();
+        }
+      }
+    } finally {
+      Utils.closeQuietly(tokenizer);
+    }
+  }
+
+  // the distinct hashes whose count is not 0, the first MAX_REPORTED are added to mismatches
+  private long findMismatches(Map<Long, Integer> mismatches) throws IOException {
+    if (spills == null) {
+      return collectMismatches(mismatches);
+    }
+    spill();
+    for (DataOutputStream spill : spills) {
+      spill.close();
+    }
+    long mismatchCount = 0;
+    for (File spillFile : spillFiles) {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)));
+      try {
+        while (true) {
+          long hash;
+          try {
+            hash = in.readLong();
+          } catch (EOFException e) {
+            break;
+          }
+          counts.add(hash, in.readInt());
+        }
+      } finally {
+        Utils.closeQuietly(in);
+      }
+      mismatchCount += collectMismatches(mismatches);
+    }
+    return mismatchCount;
+  }
+
+  private long collectMismatches(Map<Long, Integer> mismatches) {
+    long mismatchCount = 0;
+    for (int i = 0; i < counts.capacity(); i++) {
+      int count = counts.countAt(i);
+      if (count != 0) {
+        ++mismatchCount;
+        if (mismatches.size() < MAX_REPORTED) {
+          mismatches.put(counts.hashAt(i), count);
+        }
+      }
+    }
+    counts.clear();
+    return mismatchCount;
+  }
+
+  private void spill() throws IOException {
+    if (spills == null) {
+      spillFiles = new File[PARTITIONS];
+      spills = new DataOutputStream[PARTITIONS];
+      for (int i = 0; i < PARTITIONS; i++) {
+        spillFiles[i] = File.createTempFile("verify-" + i + "-", ".spill");
+        spills[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFiles[i])));
+      }
+    }
+    for (int i = 0; i < counts.capacity(); i++) {
+      int count = counts.countAt(i);
+      if (count != 0) {
+        long hash = counts.hashAt(i);
+        DataOutputStream spill = spills[(int) (hash >>> 60) % PARTITIONS];
+        spill.writeLong(hash);
+        spill.writeInt(count);
+      }
+    }
+    counts.clear();
+  }
+
+  private void deleteSpills() {
+    if (spills != null) {
+      for (int i = 0; i < PARTITIONS; i++) {
+        Utils.closeQuietly(spills[i]);
+        if (!spillFiles[i].delete()) {
+          spillFiles[i].deleteOnExit();
+        }
+      }
+      spills = null;
+      spillFiles = null;
+    }
+  }
+
+  // scans the files again for the first line of each mismatching hash
+  private static String describe(File expectedCsvFile, File outputCsvFile, Map<Long, Integer> mismatches,
+      long mismatchCount) throws IOException {
+    StringBuilder message = new StringBuilder();
+    message.append(mismatchCount).append(" distinct lines differ between ")
+        .append(expectedCsvFile.getName()).append(" and ").append(outputCsvFile.getName());
+    Map<Long, String> expectedLines = findLines(expectedCsvFile, false, mismatches);
+    Map<Long, String> outputLines = findLines(outputCsvFile, true, mismatches);
+    for (Map.Entry<Long, Integer> mismatch : mismatches.entrySet()) {
+      int count = mismatch.getValue();
+      String line = count > 0 ? expectedLines.get(mismatch.getKey()) : outputLines.get(mismatch.getKey());
+      message.append('\n').append(line).append(count > 0 ? " is missing " : " is extra ")
+          .append(Math.abs(count)).append(" time(s) in the output");
+    }
+    return message.toString();
+  }
+
+  private static Map<Long, String> findLines(File csvFile, boolean output, Map<Long, Integer> hashes)
+      throws IOException {
+    Map<Long, String> lines = new LinkedHashMap<Long, String>();
+    CsvTokenizer tokenizer = new CsvTokenizer(MappedFile.open(csvFile));
+    try {
+      long lineNumber = 0;
+      while (tokenizer.nextLine() && lines.size() < hashes.size()) {
+        ++lineNumber;
+        Long hash = hash(tokenizer, output);
+        if (hashes.containsKey(hash) && !lines.containsKey(hash)) {
+          lines.put(hash, "line " + lineNumber + " of " + csvFile.getName() + " \""
+              + new String(tokenizer.getBuffer(), tokenizer.getLineStart(), tokenizer.getLineLength(),
+                  CsvRecord.UTF8) + "\"");
+        }
+      }
+    } finally {
+      Utils.closeQuietly(tokenizer);
+    }
+    return lines;
+  }
+
+  /**
+   * FNV-1a over the bytes of the line followed by the murmur3 finalizer,
+   * never 0 as 0 marks empty slots of {@link LineCounts}.
+   */
+  static long hash(CsvTokenizer tokenizer, boolean output) {
+    byte[] buffer = tokenizer.getBuffer();
+    int start = tokenizer.getLineStart();
+    int end = start + tokenizer.getLineLength();
+    if (output) {
+      for (int i = start; i < end; i++) {
+        if (buffer[i] == '\t') {
+          start = i + 1;
+          break;
+        }
+      }
+    }
+    long h = 0xcbf29ce484222325L;
+    for (int i = start; i < end; i++) {
+      h ^= buffer[i];
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h == 0 ? 1 : h;
+  }
+
+  /**
+   * Open addressing map of non 0 hashes to counts.
+   */
+  static class LineCounts {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] hashes = new long[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int size;
+
+    void add(long hash, int delta) {
+      int mask = hashes.length - 1;
+      int i = (int) hash & mask;
+      while (hashes[i] != 0 && hashes[i] != hash) {
+        i = (i + 1) & mask;
+      }
+      if (hashes[i] == 0) {
+        hashes[i] = hash;
+        ++size;
+      }
+      counts[i] += delta;
+      if (size > hashes.length / 2) {
+        grow();
+      }
+    }
+
+    private void grow() {
+      long[] oldHashes = hashes;
+      int[] oldCounts = counts;
+      hashes = new long[oldHashes.length * 2];
+      counts = new int[oldCounts.length * 2];
+      size = 0;
+      for (int i = 0; i < oldHashes.length; i++) {
+        if (oldHashes[i] != 0) {
+          add(oldHashes[i], oldCounts[i]);
+        }
+      }
+    }
+
+    int size() {
+      return size;
+    }
+
+    int capacity() {
+      return hashes.length;
+    }
+
+    long hashAt(int i) {
+      return hashes[i];
+    }
+
+    int countAt(int i) {
+      return counts[i];
+    }
+
+    void clear() {
+      if (hashes.length > INITIAL_CAPACITY) {
+        hashes = new long[INITIAL_CAPACITY];
+        counts = new int[INITIAL_CAPACITY];
+      } else {
+        Arrays.fill(hashes, 0);
+        Arrays.fill(counts, 0);
+      }
+      size = 0;
+    }
+  }
+}
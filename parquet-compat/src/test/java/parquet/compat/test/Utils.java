@@ -15,32 +15,19 @@
  */
 package parquet.compat.test;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNull;
-
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.file.tfile.Utils.Version;
 
 import parquet.Log;
+import parquet.hadoop.metadata.BlockMetaData;
+import parquet.hadoop.metadata.ParquetMetadata;
 
 public class Utils {
 
@@ -56,57 +43,55 @@ public class Utils {
     }    
   }
 
-  public static void writePerfResult(String module, long millis) throws IOException{
-    PrintWriter writer = null;
-    try {
-      File outputFile = new File("target/test/perftime." + module + ".txt");
-      outputFile.delete();
-      writer = new  PrintWriter(outputFile);
-      writer.write(String.valueOf(millis));
-    } finally {
-      closeQuietly(writer);
-    }
-  }
-  
-  public static long readPerfResult(String version, String module) throws IOException {
-    BufferedReader reader = null;
-    try {
-      File inFile = new File("../" + version + "/target/test/perftime." + module + ".txt");
-      reader = new  BufferedReader(new FileReader(inFile));
-      return Long.parseLong(reader.readLine());
-    } finally {
-      closeQuietly(reader);
+  public static long getRowCount(File parquetFile) throws IOException {
+    ParquetMetadata footer = FooterCache.getDefault().readFooter(new Configuration(), new Path(parquetFile.toURI()));
+    long rows = 0;
+    for (BlockMetaData block : footer.getBlocks()) {
+      rows += block.getRowCount();
     }
+    return rows;
   }
-  
+
   public static File createTestFile(long largerThanMB) throws IOException {
-    File outputFile = new File("target/test/csv/perftest.csv");
-    if(outputFile.exists()) {
-      return outputFile;
-    }
-    File toCopy = new File("../parquet-testdata/tpch/customer.csv");
-    FileUtils.copyFile(new File("../parquet-testdata/tpch/customer.schema"), new File("target/test/csv/perftest.schema"));
-    
-    OutputStream output = null;
-    InputStream input = null;
-    
-    try {
-      output = new BufferedOutputStream(new FileOutputStream(outputFile, true));
-      input = new BufferedInputStream(new FileInputStream(toCopy));
-      input.mark(Integer.MAX_VALUE);
-      while(outputFile.length() <= largerThanMB * 1024 * 1024) {
-        //appendFile(output, toCopy);
-        IOUtils.copy(input, output);
-        input.reset();
+    return createTestFile("perftest", largerThanMB);
+  }
+
+  /**
+   * @return a generated customer table larger than largerThanMB, with its schema next to it,
+   * from the {@link ArtifactCache}
+   */
+  public static File createTestFile(final String name, final long largerThanMB) throws IOException {
+    final TpchGenerator generator = new TpchGenerator();
+    ArtifactCache cache = ArtifactCache.getDefault();
+    File dir = cache.get(cache.key("tpch", TpchGenerator.VERSION, generator, name, largerThanMB), "",
+        new ArtifactCache.Producer() {
+      @Override
+      public void produce(File dir) throws IOException {
+        generator.writeCsv(TpchGenerator.Table.CUSTOMER, new File(dir, name + ".csv"),
+            largerThanMB * 1024 * 1024 + 1);
       }
-    } finally {
-      closeQuietly(input);
-      closeQuietly(output);
-    }
-    
-    return outputFile;
+    });
+    return new File(dir, name + ".csv");
   }
-  
+
+  /**
+   * @return a generated table at the scale factor, with its schema next to it,
+   * from the {@link ArtifactCache}
+   */
+  public static File createTpchFile(final TpchGenerator.Table table, double scaleFactor) throws IOException {
+    final TpchGenerator generator = new TpchGenerator().setScaleFactor(scaleFactor);
+    final String name = table.name().toLowerCase();
+    ArtifactCache cache = ArtifactCache.getDefault();
+    File dir = cache.get(cache.key("tpch", TpchGenerator.VERSION, generator, name), "",
+        new ArtifactCache.Producer() {
+      @Override
+      public void produce(File dir) throws IOException {
+        generator.writeCsv(table, new File(dir, name + ".csv"));
+      }
+    });
+    return new File(dir, name + ".csv");
+  }
+
   public static File[] getAllOriginalCSVFiles() {
     File baseDir = new File("../parquet-testdata/tpch");
     final File[] csvFiles = baseDir.listFiles(new FilenameFilter() {
@@ -225,6 +210,15 @@ public class Utils {
     return outputFile;
   }
 
+  public static File getParquetOutputDir(String name, String module, boolean deleteIfExists) {
+    File outputDir = new File("target/parquet/", getParquetFileName(name, module));
+    outputDir.getParentFile().mkdirs();
+    if(deleteIfExists) {
+      FileUtils.deleteQuietly(outputDir);
+    }
+    return outputDir;
+  }
+
   private static String getParquetFileName (String name, String module) {
     return name + (module != null ? "." + module : "") + ".parquet";
   }
@@ -243,7 +237,7 @@ public class Utils {
     return parquetFile;
   }
   
-  private static String getCurrentVersion() throws IOException {
+  public static String getCurrentVersion() throws IOException {
     return new File(".").getCanonicalFile().getName().replace("parquet-compat-", "");
   }
   
@@ -297,58 +291,22 @@ public class Utils {
     return outputFile;
   }
 
+  /**
+   * Compares the lines of both files in order, see {@link OrderedVerifier}.
+   */
   public static void verify(File expectedCsvFile, File outputCsvFile) throws IOException {
-    BufferedReader expected = null;
-    BufferedReader out = null;
-    try {
-      expected = new BufferedReader(new FileReader(expectedCsvFile));
-      out = new BufferedReader(new FileReader(outputCsvFile));
-      String lineIn;
-      String lineOut = null;
-      int lineNumber = 0;
-      while ((lineIn = expected.readLine()) != null && (lineOut = out.readLine()) != null) {
-        ++ lineNumber;
-        lineOut = lineOut.substring(lineOut.indexOf("\t") + 1);
-        assertEquals("line " + lineNumber, lineIn, lineOut);
-      }
-      assertNull("line " + lineNumber, lineIn);
-      assertNull("line " + lineNumber, out.readLine());
-    } finally {
-      Utils.closeQuietly(expected);
-      Utils.closeQuietly(out);
-    }
+    new OrderedVerifier().verify(expectedCsvFile, outputCsvFile);
   }
 
+  /**
+   * @param orderMatters false to only check that both files have the same lines,
+   * see {@link UnorderedVerifier}
+   */
   public static void verify(File expectedCsvFile, File outputCsvFile, boolean orderMatters) throws IOException {
-    if(!orderMatters) {
-      // sort the files before diff'ing them
-      expectedCsvFile = sortFile(expectedCsvFile);
-      outputCsvFile = sortFile(outputCsvFile);
-    }
-    verify(expectedCsvFile, outputCsvFile);
-  }
-
-  private static File sortFile(File inFile) throws IOException {
-    File sortedFile = new File(inFile.getAbsolutePath().concat(".sorted"));
-    BufferedReader reader = new BufferedReader(new FileReader(inFile));
-    PrintWriter out = new PrintWriter(new FileWriter(sortedFile));
-
-    try {
-      String inputLine;
-      List<String> lineList = new ArrayList<String>();
-      while ((inputLine = reader.readLine()) != null) {
-        lineList.add(inputLine);
-      }
-      Collections.sort(lineList);
-
-      for (String outputLine : lineList) {
-        out.println(outputLine);
-      }
-      out.flush();
-    } finally {
-      closeQuietly(reader);
-      closeQuietly(out);
+    if (orderMatters) {
+      verify(expectedCsvFile, outputCsvFile);
+    } else {
+      new UnorderedVerifier().verify(expectedCsvFile, outputCsvFile);
     }
-    return sortedFile;
   }
 }
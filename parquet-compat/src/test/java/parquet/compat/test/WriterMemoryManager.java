@@ -0,0 +1,202 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.Path;
+
+import parquet.Log;
+import parquet.Preconditions;
+
+/**
+ * Shares a memory budget between the row groups of the parquet writers open
+ * in the JVM. A writer buffers up to its row group size before flushing it,
+ * so when the row group sizes of the open writers add up to more than the
+ * budget, a new writer gets its requested size scaled down by the excess,
+ * within what is left of the budget, and flushes smaller row groups early.
+ * A writer of this version of parquet can't change its row group size or
+ * flush on demand once open, so the writers already open keep their
+ * allocation until they close, and the budget can be exceeded by up to the
+ * minimum row group size per writer.
+ * The scaled writers and the allocations are counted in the memory.* {@link Metrics}.
+ */
+public class WriterMemoryManager {
+
+  private static final Log LOG = Log.getLog(WriterMemoryManager.class);
+
+  public static final int MIN_BLOCK_SIZE = 1024 * 1024;
+
+  private static WriterMemoryManager defaultManager;
+
+  private final long budget;
+  private final int minBlockSize;
+  private long requested;
+  private long allocated;
+  private long peakAllocated;
+  private int openWriters;
+
+  /**
+   * @return the manager of the JVM, with a budget of writer.memoryBudgetMegs or half the heap
+   */
+  public static synchronized WriterMemoryManager getDefault() {
+    if (defaultManager == null) {
+      long megs = Long.getLong("writer.memoryBudgetMegs", Runtime.getRuntime().maxMemory() / (2 * 1024 * 1024));
+      defaultManager = new WriterMemoryManager(megs * 1024 * 1024, MIN_BLOCK_SIZE);
+    }
+    return defaultManager;
+  }
+
+  /**
+   * @return an allocation from the default manager for a writer of file when options
+   * are memory managed, or an unmanaged one of the row group size of options
+   */
+  public static Allocation allocate(Path file, ConvertOptions options) {
+    if (!options.isMemoryManaged()) {
+      return new Allocation(null, file.toString(), options.getBlockSize(), options.getBlockSize());
+    }
+    return getDefault().allocate(file.toString(), options.getBlockSize());
+  }
+
+  /**
+   * Creates a writer with the row group size it was allocated.
+   */
+  public interface WriterFactory<W> {
+    W create(Allocation allocation) throws IOException;
+  }
+
+  /**
+   * @return the writer created by factory with an allocation for file, the allocation
+   * is released if the writer can't be created
+   */
+  public static <W> W open(Path file, ConvertOptions options, WriterFactory<W> factory) throws IOException {
+    Allocation allocation = allocate(file, options);
+    boolean created = false;
+    try {
+      W writer = factory.create(allocation);
+      created = true;
+      return writer;
+    } finally {
+      if (!created) {
+        allocation.release();
+      }
+    }
+  }
+
+  /**
+   * The row group size of a writer.
+   */
+  public static class Allocation {
+    private final WriterMemoryManager manager;
+    private final String name;
+    private final int requestedBlockSize;
+    private final int blockSize;
+    private boolean released;
+
+    Allocation(WriterMemoryManager manager, String name, int requestedBlockSize, int blockSize) {
+      this.manager = manager;
+      this.name = name;
+      this.requestedBlockSize = requestedBlockSize;
+      this.blockSize = blockSize;
+    }
+
+    public int getBlockSize() {
+      return blockSize;
+    }
+
+    public int getRequestedBlockSize() {
+      return requestedBlockSize;
+    }
+
+    /**
+     * Returns the row group to the budget, called when the writer closes.
+     */
+    public void release() {
+      if (manager != null) {
+        manager.release(this);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return name + ": " + blockSize + "/" + requestedBlockSize;
+    }
+  }
+
+  public WriterMemoryManager(long budget, int minBlockSize) {
+    Preconditions.checkArgument(budget > 0, "budget must be positive: " + budget);
+    this.budget = budget;
+    this.minBlockSize = minBlockSize;
+  }
+
+  /**
+   * @return the row group size of a new writer, requestedBlockSize scaled by the
+   * budget over the row group sizes requested by the open writers and at most what is
+   * left of the budget, but at least the minimum
+   */
+  public synchronized Allocation allocate(String name, int requestedBlockSize) {
+    requested += requestedBlockSize;
+    int blockSize = requestedBlockSize;
+    if (requested > budget || allocated + requestedBlockSize > budget) {
+      double scaled = Math.min((double) requestedBlockSize * budget / Math.max(requested, budget), budget - allocated);
+      blockSize = (int) Math.max(Math.min(minBlockSize, requestedBlockSize), scaled);
+    }
+    allocated += blockSize;
+    peakAllocated = Math.max(peakAllocated, allocated);
+    ++openWriters;
+
+    Metrics metrics = Metrics.getDefault();
+    metrics.histogram("memory.block_size").update(blockSize);
+    if (blockSize < requestedBlockSize) {
+      metrics.counter("memory.scaled_writers").add(1);
+      metrics.counter("memory.scaled_bytes").add(requestedBlockSize - blockSize);
+      LOG.info("Row group size of " + name + " scaled to " + blockSize + ", " + this);
+    }
+    metrics.setValue("memory.peak_allocated", String.valueOf(peakAllocated));
+    return new Allocation(this, name, requestedBlockSize, blockSize);
+  }
+
+  synchronized void release(Allocation allocation) {
+    if (allocation.released) {
+      return;
+    }
+    allocation.released = true;
+    requested -= allocation.requestedBlockSize;
+    allocated -= allocation.blockSize;
+    --openWriters;
+  }
+
+  public long getBudget() {
+    return budget;
+  }
+
+  public synchronized long getAllocated() {
+    return allocated;
+  }
+
+  public synchronized long getPeakAllocated() {
+    return peakAllocated;
+  }
+
+  public synchronized int getOpenWriters() {
+    return openWriters;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return openWriters + " writers, " + allocated + " of " + budget + " bytes allocated";
+  }
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright 2012 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package parquet.compat.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import parquet.Log;
+import parquet.hadoop.metadata.CompressionCodecName;
+
+/**
+ * Converts a csv file with every combination of codec, row group size,
+ * page size and dictionary, measuring write and read throughput and file size.
+ * The dictionary is enabled, disabled or adaptive, chosen by a {@link DictionaryPlanner}.
+ * The results are saved in the {@link PerfResults} of the module, under an
+ * encoding like "dict.b128m.p1024k", and summarized in target/test/sweep.$dataset.csv
+ * with the columns dictionary encoded in the first row group.
+ * The dictionary page size can't be set separately in this version of parquet:
+ * dictionaries fall back to plain encoding once they reach the page size.
+ * Combinations whose codec isn't available, such as LZO without its native
+ * library, are logged and skipped, any other failure fails the sweep.
+ */
+public class WriterSweep {
+
+  private static final Log LOG = Log.getLog(WriterSweep.class);
+
+  private final List<CompressionCodecName> codecs = new ArrayList<CompressionCodecName>();
+  private final List<Integer> blockSizes = new ArrayList<Integer>();
+  private final List<Integer> pageSizes = new ArrayList<Integer>();
+  private final List<Boolean> dictionaries = new ArrayList<Boolean>();
+  private boolean adaptiveDictionary;
+  private int samples = 1;
+
+  /**
+   * @return a sweep over the sweep.codecs, sweep.blockMegs, sweep.pageKB and
+   * sweep.dictionary system properties, comma separated lists.
+   * sweep.dictionary takes true, false and adaptive.
+   */
+  public static WriterSweep fromSystemProperties() {
+    WriterSweep sweep = new WriterSweep();
+    for (String codec : list("sweep.codecs", "UNCOMPRESSED,SNAPPY,GZIP")) {
+      sweep.codecs.add(CompressionCodecName.valueOf(codec.toUpperCase()));
+    }
+    for (String megs : list("sweep.blockMegs", "32,128,512")) {
+      sweep.blockSizes.add(Integer.parseInt(megs) * 1024 * 1024);
+    }
+    for (String kb : list("sweep.pageKB", "64,1024")) {
+      sweep.pageSizes.add(Integer.parseInt(kb) * 1024);
+    }
+    for (String dictionary : list("sweep.dictionary", "false,true,adaptive")) {
+      if (dictionary.equalsIgnoreCase("adaptive")) {
+        sweep.addAdaptiveDictionary();
+      } else {
+        sweep.addDictionary(Boolean.parseBoolean(dictionary));
+      }
+    }
+    return sweep.setSamples(Integer.getInteger("perf.samples", 3));
+  }
+
+  private static String[] list(String property, String defaultValue) {
+    return System.getProperty(property, defaultValue).trim().split("\\s*,\\s*");
+  }
+
+  public WriterSweep addCodec(CompressionCodecName codec) {
+    codecs.add(codec);
+    return this;
+  }
+
+  public WriterSweep addBlockSize(int blockSize) {
+    blockSizes.add(blockSize);
+    return this;
+  }
+
+  public WriterSweep addPageSize(int pageSize) {
+    pageSizes.add(pageSize);
+    return this;
+  }
+
+  public WriterSweep addDictionary(boolean enableDictionary) {
+    dictionaries.add(enableDictionary);
+    return this;
+  }
+
+  public WriterSweep addAdaptiveDictionary() {
+    adaptiveDictionary = true;
+    return this;
+  }
+
+  /**
+   * @param samples number of writes and reads measured per combination
+   */
+  public WriterSweep setSamples(int samples) {
+    this.samples = samples;
+    return this;
+  }
+
+  public List<ConvertOptions> getCombinations() {
+    List<ConvertOptions> combinations = new ArrayList<ConvertOptions>();
+    for (CompressionCodecName codec : codecs) {
+      for (int blockSize : blockSizes) {
+        for (int pageSize : pageSizes) {
+          for (boolean dictionary : dictionaries) {
+            combinations.add(new ConvertOptions().setCodec(codec).setBlockSize(blockSize)
+                .setPageSize(pageSize).setEnableDictionary(dictionary));
+          }
+          if (adaptiveDictionary) {
+            combinations.add(new ConvertOptions().setCodec(codec).setBlockSize(blockSize)
+                .setPageSize(pageSize).setAdaptiveDictionary(true));
+          }
+        }
+      }
+    }
+    return combinations;
+  }
+
+  static String getEncoding(ConvertOptions options) {
+    return (options.isAdaptiveDictionary() ? "adaptive" : options.isEnableDictionary() ? "dict" : "plain")
+        + ".b" + options.getBlockSize() / (1024 * 1024) + "m"
+        + ".p" + options.getPageSize() / 1024 + "k";
+  }
+
+  /**
+   * Runs every combination on csvFile and writes the summary.
+   * @return the write and read results of the combinations that ran
+   */
+  public List<PerfResult> run(File csvFile, String dataset) throws IOException {
+    String version = Utils.getCurrentVersion();
+    List<PerfResult> results = new ArrayList<PerfResult>();
+    Set<CompressionCodecName> unavailable = EnumSet.noneOf(CompressionCodecName.class);
+    for (CompressionCodecName codec : codecs) {
+      if (!isAvailable(codec)) {
+        unavailable.add(codec);
+      }
+    }
+    PrintWriter summary = new PrintWriter(getSummaryFile(dataset));
+    try {
+      summary.println("codec|encoding|file_bytes|write_millis|write_mb_per_second|read_millis|read_mb_per_second|dictionary_columns");
+      for (ConvertOptions options : getCombinations()) {
+        String encoding = getEncoding(options);
+        String codec = options.getCodec().name();
+        PerfResult write = new PerfResult(version, "sweep.write", dataset, encoding, codec);
+        PerfResult read = new PerfResult(version, "sweep.read", dataset, encoding, codec);
+        File parquetFile = Utils.getParquetOutputFile("sweep." + dataset, encoding + "." + codec, true);
+        File csvOutputFile = Utils.getCsvTestFile("sweep." + dataset, encoding + "." + codec, true);
+        if (unavailable.contains(options.getCodec())) {
+          continue;
+        }
+        try {
+          measure(csvFile, parquetFile, csvOutputFile, options, write, read);
+        } finally {
+          csvOutputFile.delete();
+        }
+        PerfResults.save(write);
+        PerfResults.save(read);
+        results.add(write);
+        results.add(read);
+        PerfResult.Sample lastRead = read.getSamples().get(read.getSamples().size() - 1);
+        summary.println(codec + "|" + encoding + "|" + parquetFile.length()
+            + "|" + write.getMedianElapsedMillis() + "|" + mbPerSecond(csvFile.length(), write)
+            + "|" + read.getMedianElapsedMillis() + "|" + mbPerSecond(lastRead.getOutputBytes(), read)
+            + "|" + getDictionaryColumns(parquetFile));
+        LOG.info(dataset + " " + options + ": " + parquetFile.length() + " bytes, write "
+            + write.getMedianElapsedMillis() + "ms, read " + read.getMedianElapsedMillis() + "ms");
+      }
+    } finally {
+      Utils.closeQuietly(summary);
+    }
+    return results;
+  }
+
+  /**
+   * @return whether a few bytes can be compressed with codec, LZO also needs its native library
+   */
+  static boolean isAvailable(CompressionCodecName codec) {
+    String className = codec.getHadoopCompressionCodecClass();
+    if (className == null) {
+      return true;
+    }
+    try {
+      CompressionCodec hadoopCodec = (CompressionCodec) ReflectionUtils.newInstance(
+          Class.forName(className), new Configuration());
+      OutputStream out = hadoopCodec.createOutputStream(new ByteArrayOutputStream());
+      out.write(new byte[] { 'p', 'a', 'r', 'q', 'u', 'e', 't' });
+      out.close();
+      return true;
+    } catch (Exception e) {
+      LOG.warn("Skipping " + codec + ", it is unavailable: " + e);
+    } catch (LinkageError e) {
+      LOG.warn("Skipping " + codec + ", it is unavailable: " + e);
+    }
+    return false;
+  }
+
+  private void measure(File csvFile, File parquetFile, File csvOutputFile, ConvertOptions options,
+      PerfResult write, PerfResult read) throws IOException {
+    for (int i = 0; i < samples; i++) {
+      parquetFile.delete();
+      PerfMeter meter = PerfMeter.start();
+      ConvertUtils.convertCsvToParquet(csvFile, parquetFile, options);
+      meter.stop();
+      long rows = Utils.getRowCount(parquetFile);
+      write.addSample(meter.toSample(rows, csvFile.length(), parquetFile.length()));
+
+      csvOutputFile.delete();
+      meter = PerfMeter.start();
+      ConvertUtils.convertParquetToCSVColumnar(parquetFile, csvOutputFile);
+      meter.stop();
+      read.addSample(meter.toSample(rows, parquetFile.length(), csvOutputFile.length()));
+    }
+  }
+
+  // the columns of the first row group written with a dictionary only, space separated
+  static String getDictionaryColumns(File parquetFile) throws IOException {
+    StringBuilder columns = new StringBuilder();
+    for (FooterAnalyzer.ChunkStats chunk : FooterAnalyzer.analyze(parquetFile.getName(), parquetFile)) {
+      if (chunk.rowGroup == 0 && chunk.isDictionaryOnly()) {
+        columns.append(columns.length() == 0 ? "" : " ").append(chunk.column);
+      }
+    }
+    return columns.toString();
+  }
+
+  // throughput in csv bytes, the same for every combination
+  private static double mbPerSecond(long csvBytes, PerfResult result) {
+    return csvBytes / (1024.0 * 1024.0) / (result.getMedianElapsedMillis() / 1000.0);
+  }
+
+  public static File getSummaryFile(String dataset) {
+    File file = new File("target/test/sweep." + dataset + ".csv");
+    file.getParentFile().mkdirs();
+    return file;
+  }
+}